@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.preference.Preference;
+import android.util.LruCache;
+
+/**
+ * A preference summary provider that resolves expensive summaries off the UI thread
+ * 
+ * {@more}
+ * Some summaries, such as the title of a ringtone, can only be found with a content provider query or similar slow 
+ * lookup. An {@link AsyncSummaryProvider} shows a placeholder summary immediately, resolves the real summary with 
+ * {@link #resolveSummary(Context, String)} on a shared background thread and posts the result back to the UI thread. 
+ * Resolved summaries are kept in a bounded LRU cache keyed by the preference value, so switching back to a value 
+ * that has been seen before updates the summary synchronously. If the value of a preference changes again before 
+ * its lookup completes, the stale result is dropped.
+ * <p>
+ * A provider is a {@link SummaryFormatter}, so it can be registered for a preference class, and is also an 
+ * {@link Preference.OnPreferenceChangeListener} that can be attached to a single preference with 
+ * {@link AutoLayoutSettingsActivity#bindPreferenceSummaryToValue(Preference, AsyncSummaryProvider)}. All methods other 
+ * than {@link #resolveSummary(Context, String)} are called on the UI thread.
+ */
+public abstract class AsyncSummaryProvider implements Preference.OnPreferenceChangeListener, SummaryFormatter
+{
+    /** Default number of resolved summaries kept by a provider */
+    public static final int DEFAULT_CACHE_SIZE = 32;
+    
+    /** Marks a resolved summary of null, which {@link LruCache} cannot hold */
+    private static final CharSequence NO_SUMMARY = new StringBuilder(0);
+    
+    /** Single background thread shared by all providers */
+    private static final Executor _executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "AsyncSummaryProvider");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    
+    private static Handler _mainHandler;
+    
+    /** Resolved summaries keyed by preference value. Accessed from both threads; {@link LruCache} is thread safe */
+    private final LruCache<String, CharSequence> _cache;
+    
+    /** The most recently requested value for each preference with a lookup in flight. UI thread only */
+    private final WeakHashMap<Preference, String> _pending = new WeakHashMap<Preference, String>();
+    
+    /**
+     * Construct an {@link AsyncSummaryProvider} with a cache of {@link #DEFAULT_CACHE_SIZE} entries
+     */
+    protected AsyncSummaryProvider()
+    {
+        this(DEFAULT_CACHE_SIZE);
+    }
+    
+    /**
+     * Construct an {@link AsyncSummaryProvider}
+     * @param cacheSize The maximum number of resolved summaries to keep
+     */
+    protected AsyncSummaryProvider(int cacheSize)
+    {
+        _cache = new LruCache<String, CharSequence>(cacheSize);
+    }
+    
+    /**
+     * Resolve the summary for a value
+     * 
+     * {@more}
+     * This method is called on a background thread unless {@link #isImmediate(String)} returns true for the value.
+     * @param context The application context
+     * @param value The preference value
+     * @return The summary to display, or null to clear the summary
+     */
+    protected abstract CharSequence resolveSummary(Context context, String value);
+    
+    /**
+     * Get the summary shown while a value is being resolved
+     * @param context The preference's context
+     * @param value The preference value being resolved
+     * @return The placeholder summary. The default implementation returns null, leaving the summary blank.
+     */
+    protected CharSequence getPlaceholderSummary(Context context, String value)
+    {
+        return null;
+    }
+    
+    /**
+     * Determine whether a value is cheap enough to resolve on the UI thread
+     * @param value The preference value
+     * @return true to call {@link #resolveSummary(Context, String)} synchronously and bypass the cache. The default implementation returns false.
+     */
+    protected boolean isImmediate(String value)
+    {
+        return false;
+    }
+    
+    /**
+     * Discard all cached summaries, for example when the locale changes
+     */
+    public void clearCache()
+    {
+        _cache.evictAll();
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public boolean onPreferenceChange(Preference preference, Object value)
+    {
+        applySummary(preference, value);
+        return true;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void applySummary(Preference preference, Object value)
+    {
+        updateSummary(preference, null == value ? "" : value.toString());
+    }
+    
+    /**
+     * Update the summary of a preference to reflect a value
+     * 
+     * {@more}
+     * The summary is set immediately if the value is cached or immediate. Otherwise the placeholder summary is set 
+     * and the real summary follows once it has been resolved, provided the preference has not been updated with a 
+     * different value in the meantime.
+     * @param preference The preference whose summary is updated
+     * @param value The preference value
+     */
+    public void updateSummary(Preference preference, final String value)
+    {
+        if (isImmediate(value))
+        {
+            _pending.remove(preference);
+            preference.setSummary(resolveSummary(preference.getContext(), value));
+            return;
+        }
+        
+        CharSequence cached = _cache.get(value);
+        if (null != cached)
+        {
+            _pending.remove(preference);
+            preference.setSummary(NO_SUMMARY == cached ? null : cached);
+            return;
+        }
+        
+        boolean inFlight = value.equals(_pending.put(preference, value));
+        preference.setSummary(getPlaceholderSummary(preference.getContext(), value));
+        
+        if (inFlight)
+            return;
+        
+        final Context context = preference.getContext().getApplicationContext();
+        final WeakReference<Preference> target = new WeakReference<Preference>(preference);
+        final Handler mainHandler = getMainHandler();
+        
+        _executor.execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    
+                    CharSequence summary = resolveSummary(context, value);
+                    final CharSequence entry = null == summary ? NO_SUMMARY : summary;
+                    _cache.put(value, entry);
+                    
+                    mainHandler.post(new Runnable() {
+                            @Override
+                            public void run()
+                            {
+                                deliverSummary(target.get(), value, entry);
+                            }
+                        });
+                }
+            });
+    }
+    
+    /**
+     * Resolve the summary for a value in the background, so that a preference updated with it later shows it at once
+     * 
+     * {@more}
+     * Nothing is done if the value is immediate or its summary is already cached. The resolved summary is only added 
+     * to the cache; no preference is updated.
+     * @param context Any context of the application
+     * @param value The preference value
+     */
+    public void prefetch(Context context, final String value)
+    {
+        if (isImmediate(value) || null != _cache.get(value))
+            return;
+        
+        final Context application = context.getApplicationContext();
+        
+        _executor.execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    
+                    /* An earlier lookup on this thread may have resolved it since */
+                    if (null != _cache.get(value))
+                        return;
+                    
+                    CharSequence summary = resolveSummary(application, value);
+                    _cache.put(value, null == summary ? NO_SUMMARY : summary);
+                }
+            });
+    }
+    
+    /**
+     * Get the value whose summary is still being resolved for a preference
+     * @param preference The preference
+     * @return The value most recently passed to {@link #updateSummary(Preference, String)} for <em>preference</em>
+     * if its summary is still the placeholder, otherwise null
+     */
+    public String getPendingValue(Preference preference)
+    {
+        return _pending.get(preference);
+    }
+
+    private void deliverSummary(Preference preference, String value, CharSequence entry)
+    {
+        /* Drop results for preferences that have gone away or moved on to another value */
+        if (null == preference || !value.equals(_pending.get(preference)))
+            return;
+        
+        _pending.remove(preference);
+        preference.setSummary(NO_SUMMARY == entry ? null : entry);
+    }
+    
+    private static synchronized Handler getMainHandler()
+    {
+        if (null == _mainHandler)
+            _mainHandler = new Handler(Looper.getMainLooper());
+        
+        return _mainHandler;
+    }
+}
@@ -29,22 +29,40 @@ package com.tco.preference;
 
 import android.annotation.TargetApi;
 import android.content.Context;
-import android.media.Ringtone;
-import android.media.RingtoneManager;
-import android.net.Uri;
+import android.content.SharedPreferences;
+import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Bundle;
+import android.preference.EditTextPreference;
 import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceActivity;
 import android.preference.PreferenceCategory;
 import android.preference.PreferenceFragment;
+import android.preference.PreferenceGroup;
 import android.preference.PreferenceManager;
+import android.preference.PreferenceScreen;
 import android.preference.RingtonePreference;
-import android.text.TextUtils;
+import android.preference.TwoStatePreference;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.widget.AbsListView;
+import android.widget.ListAdapter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
-import com.tco.utils.FormFactorResolver;
+import com.tco.preference.SettingsTraceSink.Phase;
 
 /**
  * A {@link PreferenceActivity} that presents a set of application settings. 
@@ -53,21 +71,22 @@ import com.tco.utils.FormFactorResolver;
  * On larger tablets, settings are split by category, with category headers shown to the left of the list of settings.
  * The application may override the default setting for layout on handset, and medium and large tablets.
  * <p>
- * An application uses this class by providing a derived class that also defines the fragments to be used for a multi-pane layout.
- * The following sample code overrides the required abstract methods to provide configuration and preference layout information as 
- * well as defining the fragments associated with the layouts.
+ * An application uses this class by providing a derived class that configures the layouts and names a section manifest.
+ * The following sample code overrides the methods that provide the configuration and the manifest.
  * 
  * {@sample \Dev\source\android_cookbook\AutoLayoutSettingsActivity\assets\MySettingsActivity.java.txt }
  *
- * <p>The pref_headers resource describes the preferences to be displayed for multi-pane layouts and the fragments associated with them
+ * <p>The pref_sections resource is a {@link PreferenceSectionManifest} that describes the sections of both layouts. Each 
+ * section with a title is also a header of the multi-pane layout, shown by a {@link SectionPreferenceFragment} unless 
+ * the section names a fragment of its own.
  * 
- * {@sample \Dev\source\android_cookbook\AutoLayoutSettingsActivity\assets\pref_headers.xml.txt }
+ * {@sample \Dev\source\android_cookbook\AutoLayoutSettingsActivity\assets\pref_sections.xml.txt }
  *
- * <p>The first header is shown by GeneralPreferenceFragment, which populates itself from the following XML resource
+ * <p>The general section is populated from the following XML resource
  * 
  * {@sample \Dev\source\android_cookbook\AutoLayoutSettingsActivity\assets\pref_general.xml.txt }
  *
- * <p>See {@link PreferenceFragment} for information on implementing the fragments themselves.
+ * <p>See {@link PreferenceFragment} for information on implementing fragments of your own.
  * 
  * <p> See <a href="http://developer.android.com/design/patterns/settings.html"> Android Design: Settings</a> for design
  * guidelines and the <a href="http://developer.android.com/guide/topics/ui/settings.html">Settings API Guide</a> for
@@ -89,15 +108,148 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
     
 
     /**
-     * Identifies a string resource id to be used for a {@link RintonePreference} summary when set to Silent.
+     * The range of preference orders reserved for each section of the simple layout.
      */
-    private static int _idStringRingtoneSilent = -1;
+    private static final int SECTION_ORDER_STRIDE = 10000;
+    
+    /**
+     * Subtracted from every section order, so that attached preferences sort before the preferences the framework 
+     * is still adding, which it numbers upwards from zero. Half the integer range, as orders are compared by subtraction.
+     */
+    private static final int SECTION_ORDER_BASE = Integer.MAX_VALUE / 2;
+    
+    /**
+     * How close to the end of the attached sections the user can scroll before the next deferred section is attached.
+     */
+    private static final int DEFERRED_SECTION_PREFETCH_ROWS = 5;
+
+    /**
+     * Resolves {@link RingtonePreference} summaries off the UI thread.
+     */
+    private static final RingtoneSummaryProvider _ringtoneSummaryProvider = new RingtoneSummaryProvider();
+    
+    /**
+     * The locale of the ringtone titles cached by {@link #_ringtoneSummaryProvider}, which are cached by value only.
+     */
+    private static Locale _ringtoneSummaryLocale;
+    
+    /**
+     * Formats the summaries of preferences bound with {@link #bindPreferenceSummaryToValue(Preference)}.
+     */
+    private static final SummaryFormatterRegistry _summaryFormatters = new SummaryFormatterRegistry();
+    
+    /**
+     * Receives phase timings, or null when tracing is off.
+     */
+    private static volatile SettingsTraceSink _traceSink;
+    
+    static
+    {
+        _summaryFormatters.register(ListPreference.class, new ListPreferenceSummaryFormatter());
+        _summaryFormatters.register(RingtonePreference.class, _ringtoneSummaryProvider);
+        _summaryFormatters.register(LargeListPreference.class, LargeListPreference.SUMMARY_FORMATTER);
+    }
     
     /**
      * Contains preference configuration information specified by the derived class. 
      */
     private PreferenceParameters _parameters = new PreferenceParameters();
     
+    /**
+     * The layout chosen for the current configuration, computed on first use.
+     */
+    private LayoutDecision _layoutDecision;
+    
+    /**
+     * Lazy sections of the simple layout that are waiting to be attached, in screen order.
+     */
+    private final List<DeferredSection> _deferredSections = new ArrayList<DeferredSection>();
+
+    /**
+     * The sections shown by the simple layout, or null if it has not been set up.
+     */
+    private List<PreferenceSection> _sections;
+
+    /**
+     * The positions within {@link #_sections} of the sections that have been attached.
+     */
+    private final BitSet _attachedSections = new BitSet();
+
+    /**
+     * The search index, built on first use.
+     */
+    private PreferenceSearchIndex _searchIndex;
+
+    /**
+     * The preferences with bound summaries, by key, whose summaries are kept up to date in the search index.
+     */
+    private final HashMap<String, Preference> _boundPreferences = new HashMap<String, Preference>();
+
+    /**
+     * The value each bound summary was last formatted from, by key, so that a refresh skips values already shown.
+     */
+    private final HashMap<String, Object> _summarySources = new HashMap<String, Object>();
+
+    /**
+     * The keys of bound preferences whose summaries have changed since their text was last given to the search index.
+     */
+    private final HashSet<String> _searchTextChanged = new HashSet<String>();
+
+    /**
+     * Every keyed preference of the attached sections of the simple layout.
+     */
+    private final HashMap<String, Preference> _preferencesByKey = new HashMap<String, Preference>();
+
+    /**
+     * Writes the values of preferences bound with {@link #bindPreferenceSummaryToBufferedValue(Preference)}, created on first use.
+     */
+    private WriteBehindEditor _writeBehindEditor;
+
+    /**
+     * Resolves the slow summaries of the headers of the multi-pane layout that are likely to be opened next, created on first use.
+     */
+    private HeaderPrewarmer _headerPrewarmer;
+
+    /**
+     * The keys of the preferences shown by this activity that depend on each key, from their <code>android:dependency</code> attributes.
+     */
+    private final KeyDependencyGraph _dependencies = new KeyDependencyGraph();
+
+    /**
+     * Every keyed preference of the fragment most recently bound by this activity's multi-pane layout.
+     */
+    private Map<String, Preference> _fragmentPreferences = Collections.emptyMap();
+
+    /**
+     * The keys written since the shown preferences were last refreshed.
+     */
+    private final LinkedHashSet<String> _changedKeys = new LinkedHashSet<String>();
+
+    /**
+     * Whether a refresh of the changed keys is waiting for the next frame.
+     */
+    private boolean _refreshScheduled;
+
+    /**
+     * Queues a refresh of the shown preferences whenever a stored value changes, whoever wrote it.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener _sharedPreferenceChangeListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+            /** {@inheritDoc} */
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)
+            {
+                if (null == key)
+                    return;
+                
+                /* A provider bound as the change listener formats an edit without passing through applySummary */
+                if (_boundPreferences.containsKey(key))
+                    _searchTextChanged.add(key);
+                
+                _changedKeys.add(key);
+                scheduleRefresh();
+            }
+        };
+
     /**
      * <p>Called to gather configuration options</p>
      * 
@@ -110,6 +262,23 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
      */
     abstract protected void onConfigureOptions(PreferenceParameters parameters);
 
+    /**
+     * <p>Called to request the resource id of the section manifest</p>
+     * 
+     * {@more}  
+     * <p>A section manifest describes the sections of both the simple and multi-pane layouts in a single 
+     * XML resource, which is parsed once per process. A derived class that returns a manifest does not need to 
+     * override {@link #onRequestSimplePreferencesConfiguration()} or {@link #onRequestPreferencesHeaders()}.</p>
+     * 
+     * @return The XML resource id of the preference-sections definition, or 0 if the derived class describes its sections in code. The default implementation returns 0.
+     * 
+     * @see PreferenceSectionManifest
+     */
+    protected int onRequestSectionManifest()
+    {
+        return 0;
+    }
+
     /**
      * <p>Called to gather preference layout information</p>
      * 
@@ -118,12 +287,18 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
      * preferences by sections. The returned list of {@link PreferenceSection} is used for laying out 
      * both simple and master/detail style preferences</p>
      * 
+     * <p>The default implementation returns the sections of the manifest given by {@link #onRequestSectionManifest()} 
+     * for the screen's form factor.</p>
+     * 
      * @return A list of {@link PreferenceSection} generally in the form of an {@link ArrayList}
      * 
      * @see PreferenceSection
      * @see PreferenceSection.Builder
      */
-    abstract protected List<PreferenceSection> onRequestSimplePreferencesConfiguration();
+    protected List<PreferenceSection> onRequestSimplePreferencesConfiguration()
+    {
+        return requireSectionManifest().getSections(getLayoutDecision().isHandset());
+    }
     
     /**
      * <p>Called to request the resource id of the preference header</p>
@@ -132,9 +307,33 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
      * <p>For a multi-pane preference layout (master/detail), the derived class will receive this 
      * call to specify the XML resource which defines the preference-headers</p>
      * 
-     * @return The XML resource id specifying the preference-headers definition
+     * @return The XML resource id specifying the preference-headers definition, or 0 to build the headers from 
+     * the sections of the manifest given by {@link #onRequestSectionManifest()} that have a fragment. The default implementation returns 0.
      */
-    abstract protected int onRequestPreferencesHeaders();
+    protected int onRequestPreferencesHeaders()
+    {
+        return 0;
+    }
+    
+    /**
+     * Gets the section manifest given by {@link #onRequestSectionManifest()}. 
+     * @return The manifest, or null if the derived class does not use one
+     */
+    protected PreferenceSectionManifest getSectionManifest()
+    {
+        int resId = onRequestSectionManifest();
+        
+        return 0 == resId ? null : PreferenceSectionManifest.get(this, resId);
+    }
+    
+    private PreferenceSectionManifest requireSectionManifest()
+    {
+        PreferenceSectionManifest manifest = getSectionManifest();
+        if (null == manifest)
+            throw new IllegalStateException(getClass().getName() + " must override onRequestSectionManifest() or onRequestSimplePreferencesConfiguration()");
+        
+        return manifest;
+    }
     
     /**
      * <p>Called to provide a resource id of a string to be used for {@link RingtonePreference} when "Silent" is selected.</p>
@@ -148,14 +347,33 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
      */
     public static void setRingtoneSilentId(int resId)
     {
-        _idStringRingtoneSilent = resId;
+        _ringtoneSummaryProvider.setSilentSummary(resId);
+    }
+    
+    /**
+     * <p>Called to provide a resource id of a string to be used for {@link RingtonePreference} while the title of 
+     * the selected ringtone is being looked up, such as "Loading...".</p>
+     * 
+     * @param resId The id of a string resource, or -1 to leave the summary blank
+     */
+    public static void setRingtonePlaceholderId(int resId)
+    {
+        _ringtoneSummaryProvider.setPlaceholderSummary(resId);
     }
     
     /** @hide */
     @Override
     protected void onCreate(Bundle savedInstanceState)
     {
+        /* An activity is usually recreated when the locale changes, so this is where the change is seen */
+        checkSummaryLocale(getResources().getConfiguration());
+        
+        TraceSpan span = traceBegin(Phase.CONFIGURE_OPTIONS, null, null);
         onConfigureOptions(_parameters);
+        traceEnd(span);
+        
+        /* Load the stored values while the views are inflated, so that binding summaries does not wait for the disk */
+        PreferencePreloader.start(this, getPreloadedPreferencesNames());
 
         super.onCreate(savedInstanceState);
         
@@ -168,7 +386,45 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
     {
         super.onPostCreate(savedInstanceState);
         
+        TraceSpan span = traceBegin(Phase.SETUP_SIMPLE_SCREEN, null, null);
         setupSimplePreferencesScreen();
+        traceEnd(span);
+        
+        /* Registered until destroyed, so that values written while paused are shown on return */
+        PreferenceManager.getDefaultSharedPreferences(this).registerOnSharedPreferenceChangeListener(_sharedPreferenceChangeListener);
+    }
+    
+    /** @hide */
+    @Override
+    protected void onResume()
+    {
+        super.onResume();
+        
+        if (!getLayoutDecision().isSimple())
+            scheduleHeaderPrewarm(null);
+    }
+    
+    /** @hide */
+    @Override
+    protected void onPause()
+    {
+        if (null != _headerPrewarmer)
+            _headerPrewarmer.cancel();
+        
+        /* Write buffered values before anything else can read them from storage */
+        if (null != _writeBehindEditor)
+            _writeBehindEditor.flush();
+        
+        super.onPause();
+    }
+    
+    /** @hide */
+    @Override
+    protected void onDestroy()
+    {
+        PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(_sharedPreferenceChangeListener);
+        
+        super.onDestroy();
     }
 
     /**
@@ -177,176 +433,1271 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
      */
     private void setupSimplePreferencesScreen()
     {
-        if (!useSimplePreferences(this))
+        if (!getLayoutDecision().isSimple())
         {
             return;
         }
 
+        /* Reuse the model built before a configuration change. Only an instance in the simple layout retains one */
+        Object last = getLastNonConfigurationInstance();
+        RetainedState retained = last instanceof RetainedState ? (RetainedState) last : null;
+        
+        /* The sections may differ between form factors */
+        if (null != retained && retained.handset != getLayoutDecision().isHandset())
+            retained = null;
+
         // In the simplified UI, fragments are not used at all and we instead
         // use the older PreferenceActivity APIs.
-        List<PreferenceSection> prefs = onRequestSimplePreferencesConfiguration();
-        
-        for (PreferenceSection pref : prefs)
+        List<PreferenceSection> prefs;
+        if (null == retained)
+        {
+            TraceSpan span = traceBegin(Phase.REQUEST_SECTIONS, null, null);
+            prefs = resolveVariants(onRequestSimplePreferencesConfiguration());
+            traceEnd(span);
+        }
+        else
+        {
+            prefs = retained.sections;
+        }
+        _sections = prefs;
+
+        List<PreferenceSection> attached = new ArrayList<PreferenceSection>(prefs.size());
+        int visibleRows = estimateVisibleRows();
+        int rows = 0;
+
+        for (int i = 0; i < prefs.size(); i++)
         {
-            if (PreferenceSection.NO_TITLE != pref.getTitle())
+            PreferenceSection pref = prefs.get(i);
+
+            /* Sections the user had already scrolled to stay attached */
+            if (pref.isLazy() && rows >= visibleRows && (null == retained || !retained.attached.get(i)))
             {
-                PreferenceCategory category = new PreferenceCategory(this);
-                category.setTitle(pref.getTitle());
-                getPreferenceScreen().addPreference(category);
+                /* Off screen, so only add a placeholder until the user scrolls near it */
+                _deferredSections.add(new DeferredSection(pref, i, addSectionCategory(pref, i, true)));
+            }
+            else
+            {
+                rows += attachSection(pref, i, null);
+                attached.add(pref);
             }
-            
-            addPreferencesFromResource(pref.getPref());
-            for (String bindKey : pref.getBoundValues())
-                bindPreferenceSummaryToValue(findPreference(bindKey));
-            
         }
-    }
 
+        /* Bind after every section is attached so that newly persisted default values are in the snapshot */
+        if (null == retained)
+            bindPreferenceSummariesToValues(attached);
+        else
+            restorePreferenceSummaries(attached, retained);
+
+        if (!_deferredSections.isEmpty())
+            getListView().setOnScrollListener(_deferredSectionScrollListener);
+    }
+    
     /**
-     * Called to determine if the activity should run in multi-pane mode.
-     * The default implementation returns true if the screen is large
-     * enough.
+     * Replaces each section that has a variant for this form factor by the variant, so that the preferences of 
+     * other variants are never inflated or bound. Sections from a manifest are already resolved.
      */
-    @Override
-    public boolean onIsMultiPane()
+    private List<PreferenceSection> resolveVariants(List<PreferenceSection> sections)
     {
-        boolean useSimple = useSimplePreferences(this); 
-        return !useSimple;
+        boolean handset = getLayoutDecision().isHandset();
+        List<PreferenceSection> resolved = sections;
+        
+        for (int i = 0; i < sections.size(); i++)
+        {
+            PreferenceSection variant = sections.get(i).resolve(handset);
+            if (variant == sections.get(i))
+                continue;
+            
+            /* Copy only once a section actually differs */
+            if (resolved == sections)
+                resolved = new ArrayList<PreferenceSection>(sections);
+            resolved.set(i, variant);
+        }
+        
+        return resolved;
     }
-
-
+    
     /**
-     * Determines whether the simplified settings UI should be shown. 
+     * Adds a section's category and body to the preference screen. 
      * 
      * {@more}
-     * This is true by default for handset and medium 
-     * tablet (approximately 7 inches) devices, or if the device doesn't have newer APIs like {@link PreferenceFragment}.
-     * In these cases, a single-pane "simplified" settings UI should be shown. This default behavior can be changed in
-     * {@link #onConfigureOptions}. 
+     * Every section occupies its own band of preference orders, so a deferred section that is attached later still 
+     * appears in its place rather than at the end of the screen. The bands are all below the orders the framework 
+     * gives to the preferences it adds, so the section's new preferences are always the tail of the screen, in 
+     * document order, and are found without comparing them to the rest of the screen.
+     * 
+     * @param category The section's placeholder category, or null if the section has not been deferred
+     * @return The number of list rows added
      */
-    private boolean useSimplePreferences(Context context)
+    private int attachSection(PreferenceSection pref, int position, PreferenceCategory category)
     {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB)
-            return true;
-
-        if (FormFactorResolver.isHandsetFormFactor(context))
-        {
-            return _parameters.Handset == PreferenceLayout.SIMPLE;
-        }
-        else if (FormFactorResolver.isMediumTabletFormFactor(context))
-        {
-            return _parameters.MediumTablet == PreferenceLayout.SIMPLE;
-        }
-        else if (FormFactorResolver.isLargeTabletFormFactor(context))
-        {
-            return _parameters.LargeTablet == PreferenceLayout.SIMPLE;
-        }
-        else
+        TraceSpan span = traceBegin(Phase.ATTACH_SECTION, pref, null);
+        PreferenceScreen screen = ensurePreferenceScreen();
+        
+        if (null == category)
+            addSectionCategory(pref, position, false);
+        else if (PreferenceSection.NO_TITLE == pref.getTitle())
+            screen.removePreference(category);
+        
+        int first = screen.getPreferenceCount();
+        
+        TraceSpan inflateSpan = traceBegin(Phase.INFLATE_SECTION, pref, null);
+        addPreferencesFromSection(pref);
+        traceEnd(inflateSpan);
+        
+        int rows = 0;
+        Map<String, Preference> sectionKeys = new HashMap<String, Preference>();
+        for (int i = first; i < screen.getPreferenceCount(); i++)
         {
-            return true;
+            Preference added = screen.getPreference(i);
+            added.setOrder(getSectionOrder(position) + 1 + i - first);
+            rows += countRows(added);
+            indexPreferences(added, sectionKeys, true);
         }
         
+        for (int i = 0; i < pref.getBoundValueCount(); i++)
+            if (!sectionKeys.containsKey(pref.getBoundValue(i)))
+                throw new IllegalStateException("Bound value '" + pref.getBoundValue(i) + "' is not a preference in section " + describe(pref));
+        
+        for (String key : sectionKeys.keySet())
+            if (_preferencesByKey.containsKey(key))
+                throw new IllegalStateException("Preference key '" + key + "' in section " + describe(pref) + " is already used by another section");
+        
+        _preferencesByKey.putAll(sectionKeys);
+        addDependencies(sectionKeys);
+        _attachedSections.set(position);
+        traceEnd(span);
+        return rows;
     }
-
     
     /**
-     * Called when the activity needs its list of headers build.  
-     * 
-     * {@more}
-     * By implementing this and adding at least one item to the list, you will cause the activity to run in its 
-     * modern fragment mode.  Note that this function may not always be called; for example, if the activity has 
-     * been asked to display a particular fragment without the header list, there is no need to build the headers.
-     *
-     * <p>Typical implementations will use {@link #loadHeadersFromResource} to fill in the list from a resource.
-     *
-     * @param target The list in which to place the headers.
+     * Gets the order of the category heading a section, which the section's preferences follow
+     * @param position The position of the section in the simple layout
      */
-    @Override
-    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
-    public void onBuildHeaders(List<Header> target)
+    private static int getSectionOrder(int position)
     {
-        if (!useSimplePreferences(this))
-        {
-            loadHeadersFromResource(onRequestPreferencesHeaders(), target);
-        }
+        return position * SECTION_ORDER_STRIDE - SECTION_ORDER_BASE;
     }
-
+    
     /**
-     * A preference value change listener that updates the preference's summary to reflect its new value.
+     * Adds the category heading a section
+     * @param placeholder true to add a category even if the section has no title, to hold its place until it is attached
+     * @return The category, or null if none was added
      */
-    private static Preference.OnPreferenceChangeListener _bindPreferenceSummaryToValueListener = new Preference.OnPreferenceChangeListener() {
-            /** {@inheritDoc} */
+    private PreferenceCategory addSectionCategory(PreferenceSection pref, int position, boolean placeholder)
+    {
+        if (PreferenceSection.NO_TITLE == pref.getTitle() && !placeholder)
+            return null;
+        
+        PreferenceCategory category = new PreferenceCategory(this);
+        if (PreferenceSection.NO_TITLE != pref.getTitle())
+            category.setTitle(pref.getTitle());
+        category.setOrder(getSectionOrder(position));
+        ensurePreferenceScreen().addPreference(category);
+        
+        return category;
+    }
+    
+    /**
+     * Attaches and binds the next deferred section
+     */
+    private void attachNextDeferredSection()
+    {
+        if (_deferredSections.isEmpty())
+            return;
+        
+        DeferredSection deferred = _deferredSections.remove(0);
+        attachSection(deferred.section, deferred.position, deferred.category);
+        bindPreferenceSummariesToValues(deferred.section);
+        
+        if (_deferredSections.isEmpty())
+            getListView().setOnScrollListener(null);
+    }
+    
+    /**
+     * Attaches every section that is still deferred in a lazy simple layout, for example before searching for a preference 
+     * that may be in one of them. 
+     */
+    protected void attachDeferredSections()
+    {
+        while (!_deferredSections.isEmpty())
+            attachNextDeferredSection();
+    }
+    
+    /**
+     * Attaches deferred sections as the user scrolls near the end of the attached ones.
+     */
+    private final AbsListView.OnScrollListener _deferredSectionScrollListener = new AbsListView.OnScrollListener() {
+            private boolean _posted;
+            
             @Override
-            public boolean onPreferenceChange(Preference preference, Object value)
+            public void onScrollStateChanged(AbsListView view, int scrollState)
             {
-                String stringValue = value.toString();
-
-                if (preference instanceof ListPreference)
-                {
-                    /* For list preferences, look up the correct display value in the preference's 'entries' list. */
-                    ListPreference listPreference = (ListPreference) preference;
-                    int index = listPreference.findIndexOfValue(stringValue);
-
-                    /* Set the summary to reflect the new value. */
-                    preference.setSummary(index >= 0 ? listPreference.getEntries()[index] : null);
-
-                }
+            }
+            
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount)
+            {
+                if (_posted || _deferredSections.isEmpty() || firstVisibleItem + visibleItemCount + DEFERRED_SECTION_PREFETCH_ROWS < totalItemCount)
+                    return;
                 
-                else if (preference instanceof RingtonePreference)
-                {
-                    /* For ringtone preferences, look up the correct display value using RingtoneManager. */
-                    if (TextUtils.isEmpty(stringValue))
-                    {
-                        /* Empty values correspond to 'silent' (no ringtone). */
-                        preference.setSummary(_idStringRingtoneSilent);
-
-                    }
-                    else
-                    {
-                        Ringtone ringtone = RingtoneManager.getRingtone(preference.getContext(), Uri.parse(stringValue));
-
-                        if (ringtone == null)
+                /* Changing the adapter while the list is laying out is not allowed, so attach on the next pass of the loop */
+                _posted = true;
+                view.post(new Runnable() {
+                        @Override
+                        public void run()
                         {
-                            /* Clear the summary if there was a lookup error. */
-                            preference.setSummary(null);
+                            _posted = false;
+                            attachNextDeferredSection();
                         }
-                        else
-                        {
-                            /* Set the summary to reflect the new ringtone display name. */
-                            String name = ringtone.getTitle(preference.getContext());
-                            preference.setSummary(name);
-                        }
-                    }
-
-                }
-                
-                else
-                {
-                    /* For all other preferences, set the summary to the value's simple string representation. */
-                    preference.setSummary(stringValue);
-                }
-                return true;
+                    });
             }
         };
-
+    
     /**
-     * Binds a preference's summary to its value. 
-     * 
-     * {@more}  
-     * More specifically, when the preference's value is changed, its summary
-     * (line of text below the preference title) is updated to reflect the value. The summary is also immediately
-     * updated upon calling this method. The exact display format is dependent on the type of preference.
+     * Estimates the number of list rows that fit on the screen.
      */
-    protected static void bindPreferenceSummaryToValue(Preference preference)
+    private int estimateVisibleRows()
     {
-        /* Set the listener to watch for value changes. */
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        TypedValue value = new TypedValue();
+        float rowHeight = 48 * metrics.density;
+        
+        if (getTheme().resolveAttribute(android.R.attr.listPreferredItemHeight, value, true) && TypedValue.TYPE_DIMENSION == value.type)
+            rowHeight = value.getDimension(metrics);
+        
+        return (int) Math.ceil(metrics.heightPixels / rowHeight);
+    }
+    
+    /**
+     * Counts the list rows used to show a preference, including the contents of a category.
+     */
+    private static int countRows(Preference preference)
+    {
+        int rows = 1;
+        
+        if (preference instanceof PreferenceCategory)
+        {
+            PreferenceGroup group = (PreferenceGroup) preference;
+            for (int i = 0; i < group.getPreferenceCount(); i++)
+                rows += countRows(group.getPreference(i));
+        }
+        
+        return rows;
+    }
+    
+    /**
+     * Adds a preference and, if it is a group, every preference in it to a key index.
+     * @param unique true to fail if a key is already in the index, false to keep the first preference with each key as {@link PreferenceGroup#findPreference(CharSequence)} does
+     */
+    private static void indexPreferences(Preference preference, Map<String, Preference> index, boolean unique)
+    {
+        String key = preference.getKey();
+        
+        if (null != key)
+        {
+            if (!index.containsKey(key))
+                index.put(key, preference);
+            else if (unique)
+                throw new IllegalStateException("Duplicate preference key '" + key + "'");
+        }
+        
+        if (preference instanceof PreferenceGroup)
+        {
+            PreferenceGroup group = (PreferenceGroup) preference;
+            for (int i = 0; i < group.getPreferenceCount(); i++)
+                indexPreferences(group.getPreference(i), index, unique);
+        }
+    }
+    
+    /**
+     * Describes a section for error messages.
+     */
+    private String describe(PreferenceSection pref)
+    {
+        return PreferenceSection.NO_TITLE == pref.getTitle() ? getResources().getResourceEntryName(pref.getPref()) : getString(pref.getTitle());
+    }
+    
+    /**
+     * Gets the preference screen, creating it if no preferences have been added yet. 
+     */
+    private PreferenceScreen ensurePreferenceScreen()
+    {
+        /* The screen is normally created by the first call to addPreferencesFromResource */
+        if (null == getPreferenceScreen())
+            setPreferenceScreen(getPreferenceManager().createPreferenceScreen(this));
+        
+        return getPreferenceScreen();
+    }
+
+    /**
+     * Adds the body of a {@link PreferenceSection} to the preference screen, using its compiled preferences when 
+     * available and inflating its XML resource otherwise.
+     */
+    private void addPreferencesFromSection(PreferenceSection pref)
+    {
+        CompiledPreferences compiled = pref.getCompiledPreference();
+        
+        if (null == compiled)
+            addPreferencesFromResource(pref.getPref());
+        else
+            compiled.addPreferencesTo(this, ensurePreferenceScreen());
+    }
+
+    /**
+     * A lazy section that has not been attached yet, and the placeholder category holding its place.
+     */
+    private static class DeferredSection
+    {
+        final PreferenceSection section;
+        final int position;
+        final PreferenceCategory category;
+        
+        DeferredSection(PreferenceSection section, int position, PreferenceCategory category)
+        {
+            this.section = section;
+            this.position = position;
+            this.category = category;
+        }
+    }
+
+    /**
+     * Restores the summaries of the bound values of sections attached after a configuration change. 
+     * 
+     * {@more}
+     * Summaries that had been resolved are set directly, so no values are read and no summaries are formatted. 
+     * Summaries that were still being resolved in the background are requested again for the same value. If the 
+     * locale has changed the resolved summaries are in the wrong language, so they are formatted again.
+     */
+    private void restorePreferenceSummaries(List<PreferenceSection> sections, RetainedState retained)
+    {
+        boolean sameLocale = retained.locale.equals(getResources().getConfiguration().locale);
+        
+        for (int j = 0; j < sections.size(); j++)
+        {
+            PreferenceSection section = sections.get(j);
+            for (int i = 0; i < section.getBoundValueCount(); i++)
+            {
+                String key = section.getBoundValue(i);
+                Preference preference = _preferencesByKey.get(key);
+                
+                TraceSpan span = traceBegin(Phase.BIND_SUMMARY, section, key);
+                preference.setOnPreferenceChangeListener(_bindPreferenceSummaryToValueListener);
+                _boundPreferences.put(key, preference);
+                _searchTextChanged.add(key);
+                
+                if (sameLocale && retained.summaries.containsKey(key))
+                    preference.setSummary(retained.summaries.get(key));
+                else if (retained.values.containsKey(key))
+                    _bindPreferenceSummaryToValueListener.onPreferenceChange(preference, retained.values.get(key));
+                else
+                    _bindPreferenceSummaryToValueListener.onPreferenceChange(preference, getCurrentValue(preference));
+                traceEnd(span);
+            }
+        }
+    }
+    
+    /**
+     * Keeps the section model and the bound summaries of the simple layout for the instance that replaces this one 
+     * after a configuration change. 
+     * 
+     * {@more}
+     * Preferences belong to the activity that inflated them, so the new instance still adds each section's 
+     * preferences, but it skips {@link #onRequestSimplePreferencesConfiguration()}, reattaches the lazy sections the 
+     * user had already scrolled to and restores the summaries without reading or formatting any values, unless the 
+     * locale has changed. If the new configuration uses the multi-pane layout, the retained state is ignored. A derived class that overrides this 
+     * method and returns its own object gives up this optimization.
+     * 
+     * @return The retained state, or null if this activity is not showing the simple layout
+     */
+    @Override
+    public Object onRetainNonConfigurationInstance()
+    {
+        if (null == _sections)
+            return null;
+        
+        RetainedState retained = new RetainedState(_sections, getLayoutDecision().isHandset(), (BitSet) _attachedSections.clone(), 
+                                                   getResources().getConfiguration().locale);
+        
+        for (int i = _attachedSections.nextSetBit(0); i >= 0; i = _attachedSections.nextSetBit(i + 1))
+        {
+            PreferenceSection section = _sections.get(i);
+            for (int j = 0; j < section.getBoundValueCount(); j++)
+            {
+                String key = section.getBoundValue(j);
+                Preference preference = _preferencesByKey.get(key);
+                
+                /* A summary still being resolved is only a placeholder, so keep the value it is being resolved for */
+                String pending = getPendingValue(preference);
+                if (null == pending)
+                    retained.summaries.put(key, preference.getSummary());
+                else
+                    retained.values.put(key, pending);
+            }
+        }
+        
+        return retained;
+    }
+    
+    /**
+     * Gets the value whose summary is being resolved in the background for a bound preference.
+     * @return The value, or null if the preference's summary is up to date
+     */
+    private static String getPendingValue(Preference preference)
+    {
+        Preference.OnPreferenceChangeListener listener = preference.getOnPreferenceChangeListener();
+        Object formatter = listener == _bindPreferenceSummaryToValueListener ? _summaryFormatters.get(preference.getClass()) : listener;
+        
+        return formatter instanceof AsyncSummaryProvider ? ((AsyncSummaryProvider) formatter).getPendingValue(preference) : null;
+    }
+    
+    /**
+     * The state of the simple layout kept across a configuration change.
+     */
+    private static class RetainedState
+    {
+        final List<PreferenceSection> sections;
+        final boolean handset;
+        final BitSet attached;
+        
+        /** The locale the summaries were formatted for */
+        final Locale locale;
+        final HashMap<String, CharSequence> summaries = new HashMap<String, CharSequence>();
+        final HashMap<String, String> values = new HashMap<String, String>();
+        
+        RetainedState(List<PreferenceSection> sections, boolean handset, BitSet attached, Locale locale)
+        {
+            this.sections = sections;
+            this.handset = handset;
+            this.attached = attached;
+            this.locale = locale;
+        }
+    }
+
+    /**
+     * Finds a preference by key. 
+     * 
+     * {@more}
+     * Preferences of the sections attached in the simple layout are found with a hash lookup rather than a walk of 
+     * the whole preference hierarchy. The index is built as sections are attached and is not told about preferences 
+     * that are later removed from the screen, so a derived class that removes preferences should not look them up 
+     * afterwards. Any other preference is found by {@link PreferenceActivity#findPreference(CharSequence)}.
+     */
+    @Override
+    public Preference findPreference(CharSequence key)
+    {
+        Preference preference = null == key ? null : _preferencesByKey.get(key.toString());
+        
+        return null != preference ? preference : super.findPreference(key);
+    }
+
+    /**
+     * Called to determine if the activity should run in multi-pane mode.
+     * The default implementation returns true if the screen is large
+     * enough.
+     */
+    @Override
+    public boolean onIsMultiPane()
+    {
+        return !getLayoutDecision().isSimple();
+    }
+
+
+    /**
+     * Gets the layout used by this activity for the current configuration. 
+     * 
+     * {@more}
+     * The decision is made once per configuration from the {@link PreferenceParameters} supplied to 
+     * {@link #onConfigureOptions} and the screen's form factor. By default the simplified settings UI, where settings 
+     * are presented in a single list, is used for handset and medium tablet (approximately 7 inches) devices, or if the 
+     * device doesn't have newer APIs like {@link PreferenceFragment}.
+     * 
+     * @return The {@link LayoutDecision} for the current configuration
+     */
+    public LayoutDecision getLayoutDecision()
+    {
+        if (null == _layoutDecision)
+            _layoutDecision = LayoutDecision.resolve(getResources().getConfiguration(), _parameters);
+        
+        return _layoutDecision;
+    }
+    
+    /** @hide */
+    @Override
+    public void onConfigurationChanged(Configuration newConfig)
+    {
+        super.onConfigurationChanged(newConfig);
+        checkSummaryLocale(newConfig);
+        
+        LayoutDecision decision = _layoutDecision;
+        if (null != decision && (newConfig.screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK) != decision.getScreenLayoutSize())
+            _layoutDecision = null;
+    }
+
+    
+    /**
+     * Discards the cached ringtone titles if they were resolved for a different locale.
+     */
+    private static void checkSummaryLocale(Configuration config)
+    {
+        if (null != _ringtoneSummaryLocale && !_ringtoneSummaryLocale.equals(config.locale))
+            _ringtoneSummaryProvider.clearCache();
+        
+        _ringtoneSummaryLocale = config.locale;
+    }
+
+    
+    /**
+     * Called when the activity needs its list of headers build.  
+     * 
+     * {@more}
+     * By implementing this and adding at least one item to the list, you will cause the activity to run in its 
+     * modern fragment mode.  Note that this function may not always be called; for example, if the activity has 
+     * been asked to display a particular fragment without the header list, there is no need to build the headers.
+     *
+     * <p>The headers are loaded from the resource returned by {@link #onRequestPreferencesHeaders()} through a 
+     * process-wide {@link PreferenceHeaderCache}, so the resource is only parsed once. If there is no header resource, 
+     * the headers are built from the sections of the {@link PreferenceSectionManifest} that have a fragment.
+     *
+     * @param target The list in which to place the headers.
+     */
+    @Override
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public void onBuildHeaders(List<Header> target)
+    {
+        if (!getLayoutDecision().isSimple())
+        {
+            TraceSpan span = traceBegin(Phase.BUILD_HEADERS, null, null);
+            loadHeaders(target);
+            traceEnd(span);
+        }
+    }
+    
+    /**
+     * Called on Android 4.4 and later to check that a fragment may be shown by this activity. 
+     * 
+     * {@more}
+     * {@link SectionPreferenceFragment} and the fragments named by the section manifest are always allowed. Other 
+     * fragments are allowed only for applications that target an earlier version of Android, as the framework does.
+     * 
+     * @param fragmentName The class name of the fragment
+     * @return true if the fragment may be shown
+     */
+    protected boolean isValidFragment(String fragmentName)
+    {
+        if (SectionPreferenceFragment.class.getName().equals(fragmentName))
+            return true;
+        
+        PreferenceSectionManifest manifest = getSectionManifest();
+        for (int i = 0; null != manifest && i < manifest.size(); i++)
+            if (fragmentName.equals(manifest.getFragment(i)))
+                return true;
+        
+        /* Mirrors the framework's default, which trusts any fragment before KitKat */
+        return getApplicationInfo().targetSdkVersion < 19;
+    }
+    
+    /**
+     * Called when the user selects a header. 
+     * 
+     * {@more}
+     * In the multi-pane layout the header is recorded by a {@link HeaderPrewarmer}, which then resolves the slow 
+     * summaries of the headers the user is most likely to open next while the UI thread is idle.
+     */
+    @Override
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public void onHeaderClick(Header header, int position)
+    {
+        boolean multiPane = !getLayoutDecision().isSimple();
+        
+        if (multiPane)
+            getHeaderPrewarmer().recordOpened(header);
+        
+        super.onHeaderClick(header, position);
+        
+        if (multiPane)
+            scheduleHeaderPrewarm(header);
+    }
+    
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private HeaderPrewarmer getHeaderPrewarmer()
+    {
+        if (null == _headerPrewarmer)
+            _headerPrewarmer = new HeaderPrewarmer(this, _summaryFormatters);
+        
+        return _headerPrewarmer;
+    }
+    
+    /**
+     * Schedules the preparation of the headers shown in the header list.
+     * @param current The header being shown, or null if it is not known
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void scheduleHeaderPrewarm(Header current)
+    {
+        ListAdapter adapter = getListAdapter();
+        if (null == adapter)
+            return;
+        
+        List<Header> headers = new ArrayList<Header>(adapter.getCount());
+        for (int i = 0; i < adapter.getCount(); i++)
+            if (adapter.getItem(i) instanceof Header)
+                headers.add((Header) adapter.getItem(i));
+        
+        getHeaderPrewarmer().schedule(headers, current);
+    }
+    
+    /**
+     * Adds the headers of the multi-pane layout to a list, from the header resource if there is one and otherwise 
+     * from the section manifest.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void loadHeaders(List<Header> target)
+    {
+        int resId = onRequestPreferencesHeaders();
+        
+        if (0 != resId)
+            PreferenceHeaderCache.loadHeaders(this, resId, target);
+        else
+            requireSectionManifest().buildHeaders(getLayoutDecision().isHandset(), target);
+    }
+
+    /**
+     * A preference value change listener that updates the preference's summary to reflect its new value.
+     */
+    private static Preference.OnPreferenceChangeListener _bindPreferenceSummaryToValueListener = new Preference.OnPreferenceChangeListener() {
+            /** {@inheritDoc} */
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object value)
+            {
+                applySummary(preference, null, value);
+                return true;
+            }
+        };
+
+    /**
+     * A preference value change listener that updates the preference's summary and queues its new value to be written.
+     */
+    private static Preference.OnPreferenceChangeListener _bindPreferenceSummaryToBufferedValueListener = new Preference.OnPreferenceChangeListener() {
+            /** {@inheritDoc} */
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object value)
+            {
+                applySummary(preference, null, value);
+                ((AutoLayoutSettingsActivity) preference.getContext()).getWriteBehindEditor().put(preference.getKey(), value);
+                
+                /* The preference is not persistent, so accepting the value only updates its state */
+                return true;
+            }
+        };
+
+    /**
+     * Registers a {@link SummaryFormatter} used by {@link #bindPreferenceSummaryToValue(Preference)} for a preference class. 
+     * 
+     * {@more}  
+     * The formatter applies to <em>type</em> and any of its subclasses that do not have a formatter of their own. By 
+     * default {@link ListPreference} and {@link LargeListPreference} summaries show the entry for the current value, {@link RingtonePreference} 
+     * summaries show the ringtone title and all other preferences show the value's string representation. 
+     * 
+     * @param type The preference class
+     * @param formatter The formatter, or null to remove the formatter registered for <em>type</em>
+     */
+    public static void registerSummaryFormatter(Class<? extends Preference> type, SummaryFormatter formatter)
+    {
+        _summaryFormatters.register(type, formatter);
+    }
+
+    /**
+     * Binds a preference's summary to its value. 
+     * 
+     * {@more}  
+     * More specifically, when the preference's value is changed, its summary
+     * (line of text below the preference title) is updated to reflect the value. The summary is also immediately
+     * updated upon calling this method. The exact display format is dependent on the type of preference.
+     */
+    protected static void bindPreferenceSummaryToValue(Preference preference)
+    {
+        /* Set the listener to watch for value changes. */
         preference.setOnPreferenceChangeListener(_bindPreferenceSummaryToValueListener);
+        trackBoundPreference(preference);
 
         /* Trigger the listener immediately with the preference's current value. */
-        _bindPreferenceSummaryToValueListener.onPreferenceChange(preference, PreferenceManager.getDefaultSharedPreferences(preference.getContext()).getString(preference.getKey(), ""));
+        _bindPreferenceSummaryToValueListener.onPreferenceChange(preference, getCurrentValue(preference));
     }
     
+    /**
+     * Binds a preference's summary to its value using an {@link AsyncSummaryProvider}. 
+     * 
+     * {@more}  
+     * This behaves like {@link #bindPreferenceSummaryToValue(Preference)}, except that the summary is resolved by 
+     * <em>provider</em>, which shows a placeholder while an expensive summary is looked up in the background.
+     */
+    protected static void bindPreferenceSummaryToValue(Preference preference, AsyncSummaryProvider provider)
+    {
+        /* Set the provider to watch for value changes. */
+        preference.setOnPreferenceChangeListener(provider);
+        trackBoundPreference(preference);
 
+        /* Resolve the summary for the preference's current value. */
+        applySummary(preference, provider, getCurrentValue(preference));
+    }
+    
+    /**
+     * Binds a preference's summary to its value and buffers writes of the value. 
+     * 
+     * {@more}  
+     * This behaves like {@link #bindPreferenceSummaryToValue(Preference)}, except that the preference stops 
+     * persisting its own value. Its summary is still updated on every change, but the value is written by this 
+     * activity's {@link WriteBehindEditor}, which coalesces changes to each key and writes them in a single edit once 
+     * the values have been unchanged for {@link PreferenceParameters#WriteBehindQuietWindow}. Buffered values are 
+     * written when the activity is paused. This is intended for preferences whose values change many times a 
+     * second, such as sliders. A preference that does not belong to an {@link AutoLayoutSettingsActivity} is bound 
+     * as usual.
+     */
+    protected static void bindPreferenceSummaryToBufferedValue(Preference preference)
+    {
+        if (!(preference.getContext() instanceof AutoLayoutSettingsActivity))
+        {
+            bindPreferenceSummaryToValue(preference);
+            return;
+        }
+        
+        /* Read the value before the preference stops persisting, then route its changes through the buffer */
+        Object value = getCurrentValue(preference);
+        preference.setPersistent(false);
+        preference.setOnPreferenceChangeListener(_bindPreferenceSummaryToBufferedValueListener);
+        trackBoundPreference(preference);
+        
+        applySummary(preference, null, value);
+    }
+    
+    /**
+     * Formats a preference's summary, with the provider if there is one and the registered formatters otherwise, and 
+     * records the value it was formatted from in the activity the preference belongs to.
+     */
+    private static void applySummary(Preference preference, AsyncSummaryProvider provider, Object value)
+    {
+        if (null != preference.getKey() && preference.getContext() instanceof AutoLayoutSettingsActivity)
+        {
+            AutoLayoutSettingsActivity activity = (AutoLayoutSettingsActivity) preference.getContext();
+            activity._summarySources.put(preference.getKey(), value);
+            activity._searchTextChanged.add(preference.getKey());
+        }
+        
+        if (null != provider)
+            provider.applySummary(preference, value);
+        else
+            _summaryFormatters.applySummary(preference, value);
+    }
+    
+    /**
+     * Determines whether a bound preference's summary was last formatted from a value.
+     */
+    private boolean isSummaryOf(String key, Object value)
+    {
+        Object source = _summarySources.get(key);
+        return null == value ? null == source && _summarySources.containsKey(key) : value.equals(source);
+    }
+    
+    /**
+     * Gets the editor that buffers writes for {@link #bindPreferenceSummaryToBufferedValue(Preference)}. 
+     * 
+     * {@more}
+     * Derived classes can use the editor to buffer values of their own, or call {@link WriteBehindEditor#flush()} 
+     * to write buffered values at other times, such as before starting another activity that reads them.
+     */
+    protected WriteBehindEditor getWriteBehindEditor()
+    {
+        if (null == _writeBehindEditor)
+            _writeBehindEditor = new WriteBehindEditor(PreferenceManager.getDefaultSharedPreferences(this), _parameters.WriteBehindQuietWindow);
+        
+        return _writeBehindEditor;
+    }
+    
+    /**
+     * Binds the summaries of several preferences to their values. 
+     * 
+     * {@more}  
+     * This is equivalent to calling {@link #bindPreferenceSummaryToValue(Preference)} for the preference with each 
+     * of the given keys, but reads every value from a single {@link SharedPreferences#getAll()} snapshot. Values are 
+     * passed to the summary listener with their stored type, so keys holding booleans, numbers or string sets can be 
+     * bound as well as strings. This is intended for {@link PreferenceFragment} implementations.
+     * 
+     * @param root The preference group containing the preferences, such as {@link PreferenceFragment#getPreferenceScreen()}
+     * @param keys The keys of the preferences to bind
+     */
+    protected static void bindPreferenceSummariesToValues(PreferenceGroup root, String... keys)
+    {
+        Map<String, Preference> index = new HashMap<String, Preference>();
+        indexPreferences(root, index, false);
+        trackFragmentPreferences(root.getContext(), index);
+        
+        Map<String, ?> values = readValues(root.getContext());
+        for (String key : keys)
+            bindPreferenceSummaryToValue(index, null, key, values);
+    }
+    
+    /**
+     * Binds the summaries of every bound value of a {@link PreferenceSection} whose preferences have been added to a group. 
+     * 
+     * {@more}  
+     * This is intended for {@link PreferenceFragment} implementations that show a section from a 
+     * {@link PreferenceSectionManifest}, so the bound keys are listed only in the manifest.
+     * 
+     * @param root The preference group containing the section's preferences, such as {@link PreferenceFragment#getPreferenceScreen()}
+     * @param section The section
+     * @see #bindPreferenceSummariesToValues(PreferenceGroup, String...)
+     */
+    protected static void bindPreferenceSummariesToValues(PreferenceGroup root, PreferenceSection section)
+    {
+        Map<String, Preference> index = new HashMap<String, Preference>();
+        indexPreferences(root, index, false);
+        trackFragmentPreferences(root.getContext(), index);
+        
+        Map<String, ?> values = readValues(root.getContext());
+        for (int i = 0; i < section.getBoundValueCount(); i++)
+            bindPreferenceSummaryToValue(index, section, section.getBoundValue(i), values);
+    }
+    
+    /**
+     * Binds the summaries of every bound value of a {@link PreferenceSection} that has been added to this activity's preference screen. 
+     * 
+     * @see #bindPreferenceSummariesToValues(List)
+     */
+    protected void bindPreferenceSummariesToValues(PreferenceSection section)
+    {
+        bindPreferenceSummariesToValues(Collections.singletonList(section));
+    }
+    
+    /**
+     * Binds the summaries of every bound value of a set of {@link PreferenceSection} objects that have been added to 
+     * this activity's preference screen. 
+     * 
+     * {@more}  
+     * All of the values are read in one pass from a single {@link SharedPreferences#getAll()} snapshot, and the 
+     * summary listener is called once per key.
+     */
+    protected void bindPreferenceSummariesToValues(List<PreferenceSection> sections)
+    {
+        Map<String, ?> values = readValues(this);
+        for (int i = 0; i < sections.size(); i++)
+        {
+            PreferenceSection section = sections.get(i);
+            for (int j = 0; j < section.getBoundValueCount(); j++)
+                bindPreferenceSummaryToValue(_preferencesByKey, section, section.getBoundValue(j), values);
+        }
+    }
+    
+    private static void bindPreferenceSummaryToValue(Map<String, Preference> index, PreferenceSection section, String key, Map<String, ?> values)
+    {
+        TraceSpan span = traceBegin(Phase.FIND_PREFERENCE, section, key);
+        Preference preference = index.get(key);
+        traceEnd(span);
+        
+        if (null == preference)
+            throw new IllegalArgumentException("No preference with key '" + key + "' to bind");
+        
+        span = traceBegin(Phase.BIND_SUMMARY, section, key);
+        preference.setOnPreferenceChangeListener(_bindPreferenceSummaryToValueListener);
+        trackBoundPreference(preference);
+        _bindPreferenceSummaryToValueListener.onPreferenceChange(preference, SummaryValues.toPreferenceValue(values.get(key)));
+        traceEnd(span);
+    }
+    
+    /**
+     * Reads a snapshot of all of the stored preference values.
+     * 
+     * {@more}
+     * When the context is an activity of this class, the snapshot is overlaid with the values its 
+     * {@link WriteBehindEditor} has not yet written, so fragments and the simple layout bind the same values.
+     */
+    private static Map<String, ?> readValues(Context context)
+    {
+        TraceSpan span = traceBegin(Phase.READ_VALUES, null, null);
+        Map<String, ?> values = PreferenceManager.getDefaultSharedPreferences(context).getAll();
+        traceEnd(span);
+        
+        if (context instanceof AutoLayoutSettingsActivity)
+        {
+            WriteBehindEditor editor = ((AutoLayoutSettingsActivity) context)._writeBehindEditor;
+            if (null != editor)
+                values = editor.overlay(values);
+        }
+        
+        return values;
+    }
+    
+    /**
+     * Records a preference with a bound summary so that its summary is searchable.
+     */
+    private static void trackBoundPreference(Preference preference)
+    {
+        /* Preferences shown by this activity, including those in its fragments, have the activity as their context */
+        if (null != preference.getKey() && preference.getContext() instanceof AutoLayoutSettingsActivity)
+            ((AutoLayoutSettingsActivity) preference.getContext())._boundPreferences.put(preference.getKey(), preference);
+    }
+    
+    /**
+     * Records the preferences of a fragment shown by this activity so that they are refreshed when their values are 
+     * written elsewhere. Only the most recently bound fragment is kept, as the multi-pane layout shows one at a time.
+     */
+    private static void trackFragmentPreferences(Context context, Map<String, Preference> index)
+    {
+        if (!(context instanceof AutoLayoutSettingsActivity))
+            return;
+        
+        AutoLayoutSettingsActivity activity = (AutoLayoutSettingsActivity) context;
+        activity._fragmentPreferences = index;
+        activity.addDependencies(index);
+    }
+    
+    /**
+     * Adds the dependencies of a set of preferences to the dependency graph.
+     */
+    private void addDependencies(Map<String, Preference> index)
+    {
+        for (Map.Entry<String, Preference> entry : index.entrySet())
+            _dependencies.addDependency(entry.getKey(), entry.getValue().getDependency());
+    }
+    
+    /**
+     * Schedules a refresh of the changed keys, at most once per frame.
+     */
+    private void scheduleRefresh()
+    {
+        if (_refreshScheduled)
+            return;
+        
+        _refreshScheduled = true;
+        
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+            postRefreshFrameCallback();
+        else
+            getWindow().getDecorView().post(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        refreshChangedPreferences();
+                    }
+                });
+    }
+    
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postRefreshFrameCallback()
+    {
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos)
+                {
+                    refreshChangedPreferences();
+                }
+            });
+    }
+    
+    /**
+     * Brings the shown preferences up to date with the values written since the last refresh. 
+     * 
+     * {@more}
+     * Only the preferences with a changed key and the preferences that depend on them, directly or indirectly, are 
+     * touched. A changed preference takes its new value, which also updates the enabled state of its dependents, 
+     * and every affected preference with a bound summary has its summary formatted again, unless the summary already 
+     * shows the stored value, as it does after an edit made in this activity. A preference whose value 
+     * is buffered by the {@link WriteBehindEditor} keeps its buffered value, which is newer than the stored one.
+     */
+    private void refreshChangedPreferences()
+    {
+        _refreshScheduled = false;
+        
+        Set<String> changed = new HashSet<String>(_changedKeys);
+        Set<String> affected = _dependencies.collectAffected(_changedKeys);
+        _changedKeys.clear();
+        
+        if (isFinishing())
+            return;
+        
+        SharedPreferences stored = PreferenceManager.getDefaultSharedPreferences(this);
+        for (String key : affected)
+        {
+            Preference preference = _preferencesByKey.get(key);
+            if (null == preference)
+                preference = _fragmentPreferences.get(key);
+            
+            boolean bound = null != preference && preference == _boundPreferences.get(key);
+            if (null == preference || (!bound && !changed.contains(key)))
+                continue;
+            
+            TraceSpan span = traceBegin(Phase.REFRESH_PREFERENCE, null, key);
+            Object value = getCurrentValue(preference);
+            
+            /* A removed value is shown as empty, but is not written back by setting it on the preference */
+            if (changed.contains(key) && stored.contains(key) && (null == _writeBehindEditor || !_writeBehindEditor.isPending(key)))
+                applyStoredValue(preference, value);
+            
+            /* An edit made in this activity has already been formatted by the change listener */
+            if (bound && !isSummaryOf(key, value))
+            {
+                Preference.OnPreferenceChangeListener listener = preference.getOnPreferenceChangeListener();
+                applySummary(preference, listener instanceof AsyncSummaryProvider ? (AsyncSummaryProvider) listener : null, value);
+            }
+            traceEnd(span);
+        }
+    }
+    
+    /**
+     * Sets the value held by a preference to a value read from storage, if it differs. 
+     * 
+     * {@more}
+     * Setting the value persists it again, which is harmless as it is unchanged, and notifies the preference's 
+     * dependents. Preferences of other types are left alone, as only their summaries can be refreshed.
+     */
+    private static void applyStoredValue(Preference preference, Object value)
+    {
+        if (preference instanceof TwoStatePreference && value instanceof Boolean)
+        {
+            TwoStatePreference twoState = (TwoStatePreference) preference;
+            if (twoState.isChecked() != (Boolean) value)
+                twoState.setChecked((Boolean) value);
+        }
+        else if (preference instanceof ListPreference && value instanceof String)
+        {
+            ListPreference list = (ListPreference) preference;
+            if (!value.equals(list.getValue()))
+                list.setValue((String) value);
+        }
+        else if (preference instanceof LargeListPreference && value instanceof String)
+        {
+            LargeListPreference list = (LargeListPreference) preference;
+            if (!value.equals(list.getValue()))
+                list.setValue((String) value);
+        }
+        else if (preference instanceof EditTextPreference && value instanceof String)
+        {
+            EditTextPreference editText = (EditTextPreference) preference;
+            if (!value.equals(editText.getText()))
+                editText.setText((String) value);
+        }
+        else if (preference instanceof MultiSelectListPreference && value instanceof Set)
+        {
+            MultiSelectListPreference multiSelect = (MultiSelectListPreference) preference;
+            if (!value.equals(multiSelect.getValues()))
+            {
+                @SuppressWarnings("unchecked")
+                Set<String> values = (Set<String>) value;
+                multiSelect.setValues(values);
+            }
+        }
+    }
+    
+    /**
+     * Gets the index used to search this activity's preferences. 
+     * 
+     * {@more}
+     * The index covers every section returned by {@link #onRequestSimplePreferencesConfiguration()} and every header 
+     * returned by {@link #onRequestPreferencesHeaders()}, whichever layout is in use. It is built from the XML 
+     * resources on first use, without inflating any preferences, and afterwards only the summaries of bound 
+     * preferences that have changed are re-indexed. A result can be shown with {@link #showSearchResult(PreferenceSearchIndex.Result)}.
+     * 
+     * @return The search index, up to date with the current summaries of bound preferences
+     */
+    public PreferenceSearchIndex getSearchIndex()
+    {
+        if (null == _searchIndex)
+        {
+            List<PreferenceSection> sections = null != _sections ? _sections : resolveVariants(onRequestSimplePreferencesConfiguration());
+            List<Header> headers = null;
+            
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB)
+            {
+                headers = new ArrayList<Header>();
+                loadHeaders(headers);
+            }
+            
+            _searchIndex = PreferenceSearchIndexer.build(this, sections, headers);
+        }
+        
+        Iterator<String> keys = _searchTextChanged.iterator();
+        while (keys.hasNext())
+        {
+            String key = keys.next();
+            Preference preference = _boundPreferences.get(key);
+            _searchIndex.updateText(key, preference.getSummary());
+            
+            /* A summary still being resolved changes again when it arrives */
+            Preference.OnPreferenceChangeListener listener = preference.getOnPreferenceChangeListener();
+            if (!(listener instanceof AsyncSummaryProvider) || null == ((AsyncSummaryProvider) listener).getPendingValue(preference))
+                keys.remove();
+        }
+        
+        return _searchIndex;
+    }
+    
+    /**
+     * Shows a search result. 
+     * 
+     * {@more}
+     * In the simple layout, every deferred section is attached and the list is scrolled to the preference, or to the 
+     * start of its section if the preference is not shown directly in the list. In the multi-pane layout, the 
+     * result's header is selected.
+     * 
+     * @param result A result found with {@link #getSearchIndex()}
+     * @return true if the result was shown, false if it is not part of the current layout
+     */
+    public boolean showSearchResult(PreferenceSearchIndex.Result result)
+    {
+        if (!getLayoutDecision().isSimple())
+            return switchToHeader(result.getHeader());
+        
+        if (result.getSection() < 0 || null == _sections)
+            return false;
+        
+        attachDeferredSections();
+        
+        PreferenceScreen screen = getPreferenceScreen();
+        ListAdapter adapter = screen.getRootAdapter();
+        int position = indexOf(adapter, null == result.getKey() ? null : findPreference(result.getKey()));
+        
+        /* Not in the list itself, so fall back to the start of the section */
+        if (position < 0)
+        {
+            Preference start = null;
+            for (int i = 0; i < screen.getPreferenceCount(); i++)
+            {
+                Preference preference = screen.getPreference(i);
+                if (preference.getOrder() >= getSectionOrder(result.getSection()) && (null == start || preference.getOrder() < start.getOrder()))
+                    start = preference;
+            }
+            
+            position = indexOf(adapter, start);
+        }
+        
+        if (position < 0)
+            return false;
+        
+        getListView().setSelection(position);
+        return true;
+    }
+    
+    private static int indexOf(ListAdapter adapter, Preference preference)
+    {
+        for (int i = 0; null != preference && i < adapter.getCount(); i++)
+            if (adapter.getItem(i) == preference)
+                return i;
+        
+        return -1;
+    }
+    
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private boolean switchToHeader(int position)
+    {
+        ListAdapter adapter = getListAdapter();
+        if (position < 0 || null == adapter || position >= adapter.getCount())
+            return false;
+        
+        switchToHeader((Header) adapter.getItem(position));
+        return true;
+    }
+    
+    /**
+     * Gets the shared preferences files read by this activity's sections: the default file and any named in 
+     * {@link PreferenceParameters#SharedPreferencesNames}.
+     */
+    private String[] getPreloadedPreferencesNames()
+    {
+        String[] names = new String[1 + _parameters.SharedPreferencesNames.length];
+        names[0] = PreferencePreloader.getDefaultSharedPreferencesName(this);
+        System.arraycopy(_parameters.SharedPreferencesNames, 0, names, 1, _parameters.SharedPreferencesNames.length);
+        
+        return names;
+    }
+    
+    /**
+     * Installs a sink for the timings of each phase of building the settings screen. 
+     * 
+     * {@more}
+     * The sink is shared by every instance of {@link AutoLayoutSettingsActivity} and should be installed before the 
+     * activity is created, for example in {@link android.app.Application#onCreate()}, so that the earliest phases are 
+     * reported. Tracing costs nothing beyond a field read while no sink is installed.
+     * 
+     * @param sink The sink, such as a {@link LogcatTraceSink}, or null to stop tracing
+     */
+    public static void setTraceSink(SettingsTraceSink sink)
+    {
+        _traceSink = sink;
+    }
+    
+    /**
+     * Reports the beginning of a phase to the installed sink.
+     * 
+     * @return The span to pass to {@link #traceEnd(TraceSpan)}, or null if no sink is installed
+     */
+    private static TraceSpan traceBegin(Phase phase, PreferenceSection section, String key)
+    {
+        SettingsTraceSink sink = _traceSink;
+        if (null == sink)
+            return null;
+        
+        sink.onBegin(phase, section, key);
+        return new TraceSpan(sink, phase, section, key);
+    }
+    
+    /**
+     * Reports the end of a phase to the sink that saw it begin, so that its events stay nested even if another sink 
+     * is installed part way through the phase.
+     */
+    private static void traceEnd(TraceSpan span)
+    {
+        if (null != span)
+            span.sink.onEnd(span.phase, span.section, span.key, System.nanoTime() - span.start);
+    }
+    
+    /**
+     * A phase that has begun, with the sink that was told about it.
+     */
+    private static final class TraceSpan
+    {
+        final SettingsTraceSink sink;
+        final Phase phase;
+        final PreferenceSection section;
+        final String key;
+        final long start = System.nanoTime();
+        
+        TraceSpan(SettingsTraceSink sink, Phase phase, PreferenceSection section, String key)
+        {
+            this.sink = sink;
+            this.phase = phase;
+            this.section = section;
+            this.key = key;
+        }
+    }
+    
+    /**
+     * Reads the stored value of a preference, whatever its type.
+     */
+    private static Object getCurrentValue(Preference preference)
+    {
+        /* A buffered value that has not been written yet is the current one */
+        if (preference.getContext() instanceof AutoLayoutSettingsActivity)
+        {
+            WriteBehindEditor editor = ((AutoLayoutSettingsActivity) preference.getContext())._writeBehindEditor;
+            if (null != editor && editor.isPending(preference.getKey()))
+                return SummaryValues.toPreferenceValue(editor.getPending(preference.getKey()));
+        }
+        
+        /* The file the preference itself uses, which may be one of the additional files of its section */
+        SharedPreferences sharedPreferences = preference.getSharedPreferences();
+        if (null == sharedPreferences)
+            sharedPreferences = PreferenceManager.getDefaultSharedPreferences(preference.getContext());
+        
+        try
+        {
+            return sharedPreferences.getString(preference.getKey(), "");
+        }
+        catch (ClassCastException e)
+        {
+            /* Not a string, so find out what it is */
+            return SummaryValues.toPreferenceValue(sharedPreferences.getAll().get(preference.getKey()));
+        }
+    }
+    
     /**
      *  Define the parameters that are used to configure an instance of {@link AutoLayoutSettingsActivity} 
      */
@@ -362,6 +1713,12 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
         /** Contains the current {@link PreferenceLayout} value for a large tablet */
         public PreferenceLayout LargeTablet = PreferenceLayout.MULTIPANE;
         
+        /** Contains how long, in milliseconds, buffered preference values must stay unchanged before they are written */
+        public long WriteBehindQuietWindow = WriteBehindEditor.DEFAULT_QUIET_WINDOW;
+        
+        /** Contains the names of the shared preferences files used by sections besides the default file, which are loaded in the background with it */
+        public String[] SharedPreferencesNames = new String[0];
+        
         /**
          * Constructs a PreferenceParameters with the default values
          */
@@ -378,6 +1735,8 @@ public abstract class AutoLayoutSettingsActivity extends PreferenceActivity
             Handset = other.Handset;
             MediumTablet = other.MediumTablet;
             LargeTablet = other.LargeTablet;
+            WriteBehindQuietWindow = other.WriteBehindQuietWindow;
+            SharedPreferencesNames = other.SharedPreferencesNames.clone();
         }
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import android.content.Context;
+import android.preference.PreferenceGroup;
+
+/**
+ * A preference body that has been compiled ahead of time into Java code
+ * 
+ * {@more}
+ * Implementations are normally generated at build time by the <code>PreferenceCompiler</code> tool found in the 
+ * <em>tools</em> directory, which translates each <code>res/xml/pref_*.xml</code> resource into code that creates 
+ * the {@link android.preference.Preference} objects directly rather than running them through the XML inflater. 
+ * A compiled body is attached to a {@link PreferenceSection} with 
+ * {@link PreferenceSection.Builder#setCompiledPreference(CompiledPreferences)}, or by marking the section 
+ * <code>compiled="true"</code> in a {@link PreferenceSectionManifest}; the section's XML resource remains the 
+ * fallback whenever no compiled body is supplied.
+ */
+public interface CompiledPreferences
+{
+    /**
+     * Creates the preferences described by the original XML resource and adds them to <em>root</em>
+     * 
+     * {@more}
+     * Preferences are added in document order. Dependencies between preferences are registered only after all 
+     * of the preferences have been added, so <em>root</em> must already be attached to a 
+     * {@link android.preference.PreferenceManager}. 
+     * 
+     * @param context The context used to create the preferences and resolve their resources
+     * @param root The group to which the preferences are added
+     */
+    public void addPreferencesTo(Context context, PreferenceGroup root);
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.preference.Preference;
+import android.preference.PreferenceActivity.Header;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+/**
+ * Resolves the slow summaries of the headers of a multi-pane settings screen that the user is most likely to open next
+ * 
+ * {@more}
+ * {@link HeaderPrewarmer} counts how often each header is opened, and when the UI thread is idle prepares the most 
+ * frequently opened headers other than the current one. Preparing a header reads its section's preference XML to 
+ * find the type of each bound value, and starts resolving the summary of every bound value whose formatter is an 
+ * {@link AsyncSummaryProvider}, such as the title of a ringtone, with {@link AsyncSummaryProvider#prefetch(Context, String)}. 
+ * When the header is opened, its fragment binds those summaries from the provider's cache, so they are shown at once 
+ * instead of a placeholder. 
+ * <p>
+ * The counts are kept in a small preferences file of their own, which is read on a background thread and written 
+ * by {@link #cancel()}. Headers are only scheduled once the counts have been read. Each idle pass prepares one 
+ * header, at most {@link #MAX_PREPARED_HEADERS} headers are prepared per {@link #schedule(List, Header)}, and nothing 
+ * is prepared while less than {@link #MIN_FREE_HEAP_FRACTION} of the heap is free. This class must only be used from 
+ * the UI thread.
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+public class HeaderPrewarmer
+{
+    /** The most headers prepared after each call to {@link #schedule(List, Header)} */
+    public static final int MAX_PREPARED_HEADERS = 2;
+    
+    /** The fraction of the maximum heap size that must be free for a header to be prepared */
+    public static final float MIN_FREE_HEAP_FRACTION = 0.25f;
+    
+    private static final String TAG = "HeaderPrewarmer";
+    private static final String STATS_NAME = "com.tco.preference.HeaderPrewarmer";
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    
+    /** The package of preference elements written without one */
+    private static final String PREFERENCE_PACKAGE = "android.preference.";
+    
+    private final Activity _activity;
+    private final SummaryFormatterRegistry _formatters;
+    private final Handler _handler = new Handler();
+    
+    /** Opening counts by header key, including those recorded before the stats file was read */
+    private final HashMap<String, Integer> _counts = new HashMap<String, Integer>();
+    
+    /** The stats file, set once it has been read in the background so that writing it does not block */
+    private SharedPreferences _stats;
+    private boolean _dirty;
+    
+    /** The arguments of a {@link #schedule(List, Header)} made before the stats file was read */
+    private List<Header> _pendingHeaders;
+    private Header _pendingCurrent;
+    
+    private final LinkedList<Header> _queue = new LinkedList<Header>();
+    private final HashSet<String> _prepared = new HashSet<String>();
+    private boolean _idleHandlerAdded;
+    
+    private final MessageQueue.IdleHandler _idleHandler = new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle()
+            {
+                if (_activity.isFinishing() || _queue.isEmpty() || !hasHeadroom())
+                {
+                    _queue.clear();
+                    _idleHandlerAdded = false;
+                    return false;
+                }
+                
+                prepare(_queue.removeFirst());
+                
+                _idleHandlerAdded = !_queue.isEmpty();
+                return _idleHandlerAdded;
+            }
+        };
+    
+    /**
+     * Construct a {@link HeaderPrewarmer} and start reading its counts in the background
+     * @param activity The activity showing the headers
+     * @param formatters The summary formatters used to bind the summaries of the headers' sections
+     */
+    public HeaderPrewarmer(Activity activity, SummaryFormatterRegistry formatters)
+    {
+        _activity = activity;
+        _formatters = formatters;
+        
+        final Context application = activity.getApplicationContext();
+        new Thread(TAG) {
+                @Override
+                public void run()
+                {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    
+                    final SharedPreferences stats = application.getSharedPreferences(STATS_NAME, Context.MODE_PRIVATE);
+                    final Map<String, ?> counts = stats.getAll();
+                    
+                    _handler.post(new Runnable() {
+                            @Override
+                            public void run()
+                            {
+                                onStatsLoaded(stats, counts);
+                            }
+                        });
+                }
+            }.start();
+    }
+    
+    /**
+     * Record that the user opened a header
+     */
+    public void recordOpened(Header header)
+    {
+        String key = getKey(header);
+        if (null == key)
+            return;
+        
+        _counts.put(key, Integer.valueOf(getCount(key) + 1));
+        _dirty = true;
+    }
+    
+    /**
+     * Prepare the headers most likely to be opened next the next time the UI thread is idle
+     * @param headers The headers shown by the activity
+     * @param current The header being shown, which is not prepared, or null
+     */
+    public void schedule(List<Header> headers, Header current)
+    {
+        if (null == _stats)
+        {
+            /* Scheduled again once the counts have been read */
+            _pendingHeaders = headers;
+            _pendingCurrent = current;
+            return;
+        }
+        
+        ArrayList<Header> candidates = new ArrayList<Header>(headers.size());
+        for (Header header : headers)
+        {
+            String key = getKey(header);
+            if (null != key && header != current && !_prepared.contains(key) && getCount(key) > 0)
+                candidates.add(header);
+        }
+        
+        /* Most frequently opened first; the sort is stable, so ties keep their order in the list */
+        Collections.sort(candidates, new Comparator<Header>() {
+                @Override
+                public int compare(Header lhs, Header rhs)
+                {
+                    int l = getCount(getKey(lhs));
+                    int r = getCount(getKey(rhs));
+                    
+                    return l > r ? -1 : (l == r ? 0 : 1);
+                }
+            });
+        
+        _queue.clear();
+        _queue.addAll(candidates.subList(0, Math.min(MAX_PREPARED_HEADERS, candidates.size())));
+        
+        if (!_queue.isEmpty() && !_idleHandlerAdded)
+        {
+            _idleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(_idleHandler);
+        }
+    }
+    
+    /**
+     * Stop preparing headers and write the counts recorded since they were last written, for example when the 
+     * activity is paused
+     */
+    public void cancel()
+    {
+        _queue.clear();
+        _pendingHeaders = null;
+        
+        if (_idleHandlerAdded)
+        {
+            _idleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(_idleHandler);
+        }
+        
+        if (_dirty && null != _stats)
+        {
+            SharedPreferences.Editor editor = _stats.edit();
+            for (Map.Entry<String, Integer> entry : _counts.entrySet())
+                editor.putInt(entry.getKey(), entry.getValue().intValue());
+            editor.apply();
+            
+            _dirty = false;
+        }
+    }
+    
+    private void onStatsLoaded(SharedPreferences stats, Map<String, ?> counts)
+    {
+        /* Openings recorded while the file was being read are added to the stored counts */
+        for (Map.Entry<String, ?> entry : counts.entrySet())
+            if (entry.getValue() instanceof Integer)
+                _counts.put(entry.getKey(), Integer.valueOf(getCount(entry.getKey()) + ((Integer) entry.getValue()).intValue()));
+        
+        _stats = stats;
+        
+        if (null != _pendingHeaders && !_activity.isFinishing())
+            schedule(_pendingHeaders, _pendingCurrent);
+        
+        _pendingHeaders = null;
+        _pendingCurrent = null;
+    }
+    
+    private int getCount(String key)
+    {
+        Integer count = _counts.get(key);
+        return null == count ? 0 : count.intValue();
+    }
+    
+    private void prepare(Header header)
+    {
+        _prepared.add(getKey(header));
+        
+        PreferenceSection section = PreferenceSectionManifest.getSection(_activity, header.fragmentArguments);
+        if (null == section || 0 == section.getBoundValueCount())
+            return;
+        
+        Resources res = _activity.getResources();
+        Map<String, ?> values = PreferenceManager.getDefaultSharedPreferences(_activity).getAll();
+        
+        XmlResourceParser parser = res.getXml(section.getPref());
+        try
+        {
+            for (int type = parser.getEventType(); XmlPullParser.END_DOCUMENT != type; type = parser.next())
+            {
+                if (XmlPullParser.START_TAG != type)
+                    continue;
+                
+                int keyId = parser.getAttributeResourceValue(ANDROID_NS, "key", 0);
+                String key = 0 != keyId ? res.getString(keyId) : parser.getAttributeValue(ANDROID_NS, "key");
+                
+                if (null != key && isBound(section, key))
+                    prefetch(parser.getName(), values.get(key));
+            }
+        }
+        catch (XmlPullParserException e)
+        {
+            Log.w(TAG, "Unable to prepare " + header.fragment, e);
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Unable to prepare " + header.fragment, e);
+        }
+        finally
+        {
+            parser.close();
+        }
+    }
+    
+    /**
+     * Starts resolving the summary of a stored value if the formatter for its preference element resolves it in the background
+     */
+    private void prefetch(String element, Object stored)
+    {
+        Object value = SummaryValues.toPreferenceValue(stored);
+        if (null == value)
+            return;
+        
+        Class<?> type;
+        try
+        {
+            type = Class.forName(element.indexOf('.') < 0 ? PREFERENCE_PACKAGE + element : element, false, _activity.getClassLoader());
+        }
+        catch (ClassNotFoundException e)
+        {
+            /* The fragment reports an unknown element when it inflates the section */
+            return;
+        }
+        
+        if (!Preference.class.isAssignableFrom(type))
+            return;
+        
+        SummaryFormatter formatter = _formatters.get(type.asSubclass(Preference.class));
+        if (formatter instanceof AsyncSummaryProvider)
+            ((AsyncSummaryProvider) formatter).prefetch(_activity, value.toString());
+    }
+    
+    private static boolean isBound(PreferenceSection section, String key)
+    {
+        for (int i = 0; i < section.getBoundValueCount(); i++)
+            if (key.equals(section.getBoundValue(i)))
+                return true;
+        
+        return false;
+    }
+    
+    private static boolean hasHeadroom()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        
+        return free >= runtime.maxMemory() * MIN_FREE_HEAP_FRACTION;
+    }
+    
+    /**
+     * Gets the key under which a header's openings are counted
+     * @return The key, or null if the header does not show a fragment
+     */
+    private static String getKey(Header header)
+    {
+        if (null == header.fragment)
+            return null;
+        
+        if (null != header.fragmentArguments && header.fragmentArguments.containsKey(PreferenceSectionManifest.ARG_SECTION))
+            return header.fragment + "#" + header.fragmentArguments.getInt(PreferenceSectionManifest.ARG_SECTION);
+        
+        return header.fragment;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The dependencies between preference keys
+ * 
+ * {@more}
+ * A preference that names another in its <code>android:dependency</code> attribute depends on that preference. The 
+ * graph answers which keys are affected when a set of keys changes: the changed keys themselves and every key that 
+ * depends on them, directly or through other keys. Cycles are tolerated. This class has no Android dependencies and 
+ * is not thread safe.
+ */
+public final class KeyDependencyGraph
+{
+    private final HashMap<String, HashSet<String>> _dependents = new HashMap<String, HashSet<String>>();
+    
+    /**
+     * Record that one key depends on another
+     * @param key The key of the dependent preference
+     * @param dependency The key it depends on, or null if it has no dependency
+     */
+    public void addDependency(String key, String dependency)
+    {
+        if (null == key || null == dependency)
+            return;
+        
+        HashSet<String> dependents = _dependents.get(dependency);
+        if (null == dependents)
+        {
+            dependents = new HashSet<String>();
+            _dependents.put(dependency, dependents);
+        }
+        
+        dependents.add(key);
+    }
+    
+    /**
+     * Find the keys affected by a change
+     * @param changed The keys that changed
+     * @return The changed keys followed by every key that depends on them, directly or indirectly, each listed once
+     */
+    public Set<String> collectAffected(Collection<String> changed)
+    {
+        LinkedHashSet<String> affected = new LinkedHashSet<String>(changed);
+        ArrayDeque<String> pending = new ArrayDeque<String>(changed);
+        
+        while (!pending.isEmpty())
+        {
+            HashSet<String> dependents = _dependents.get(pending.removeFirst());
+            if (null == dependents)
+                continue;
+            
+            for (String dependent : dependents)
+                if (affected.add(dependent))
+                    pending.addLast(dependent);
+        }
+        
+        return affected;
+    }
+    
+    /**
+     * Remove every dependency
+     */
+    public void clear()
+    {
+        _dependents.clear();
+    }
+}
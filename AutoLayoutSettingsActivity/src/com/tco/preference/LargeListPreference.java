@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.content.res.TypedArray;
+import android.database.Cursor;
+import android.preference.DialogPreference;
+import android.preference.Preference;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.TextView;
+
+/**
+ * A list preference for lists with thousands of entries, such as time zones or locales
+ * 
+ * {@more}
+ * {@link android.preference.ListPreference} reads its entries when it is inflated, builds a row for every entry when 
+ * its dialog is shown and finds the entry for a value with a linear scan. A {@link LargeListPreference} instead 
+ * <ul>
+ * <li>loads its entries on first use, from the array resources named by <code>android:entries</code> and 
+ * <code>android:entryValues</code> or from an {@link EntryLoader} such as a {@link CursorEntryLoader};</li>
+ * <li>finds the entry for a value, and the row of the selected value, through a {@link ListSummaryIndex};</li>
+ * <li>shows its entries in a {@link ListView} whose rows are recycled, above a field that filters them as the user 
+ * types, using a {@link ListEntryFilter}.</li>
+ * </ul>
+ * As with a list preference, choosing an entry sets the value and closes the dialog. The summary is formatted by 
+ * {@link #SUMMARY_FORMATTER}, which {@link AutoLayoutSettingsActivity} registers for this class.
+ */
+public class LargeListPreference extends DialogPreference
+{
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+    
+    /** Shows the entry for a {@link LargeListPreference}'s value */
+    public static final SummaryFormatter SUMMARY_FORMATTER = new SummaryFormatter() {
+            @Override
+            public void applySummary(Preference preference, Object value)
+            {
+                preference.setSummary(null == value ? null : ((LargeListPreference) preference).getEntryForValue(value.toString()));
+            }
+        };
+    
+    /**
+     * Loads the entries of a {@link LargeListPreference}
+     */
+    public interface EntryLoader
+    {
+        /**
+         * Load the entries
+         * 
+         * {@more}
+         * This method is called on the UI thread the first time the entries are needed, which is when the summary is 
+         * first formatted or the dialog is first shown.
+         * @param context The preference's context
+         * @param entries Receives the human readable entries
+         * @param entryValues Receives the value of each entry, in the same order
+         */
+        public void load(Context context, List<CharSequence> entries, List<CharSequence> entryValues);
+    }
+    
+    /**
+     * An {@link EntryLoader} that reads the entries and their values from two columns of a cursor
+     */
+    public static abstract class CursorEntryLoader implements EntryLoader
+    {
+        private final String _entryColumn;
+        private final String _valueColumn;
+        
+        /**
+         * Construct a {@link CursorEntryLoader}
+         * @param entryColumn The column holding the human readable entries
+         * @param valueColumn The column holding the values
+         */
+        protected CursorEntryLoader(String entryColumn, String valueColumn)
+        {
+            _entryColumn = entryColumn;
+            _valueColumn = valueColumn;
+        }
+        
+        /**
+         * Query the entries
+         * @param context The preference's context
+         * @return A cursor over the entries in display order, or null if there are none. The loader closes the cursor.
+         */
+        protected abstract Cursor query(Context context);
+        
+        /** {@inheritDoc} */
+        @Override
+        public void load(Context context, List<CharSequence> entries, List<CharSequence> entryValues)
+        {
+            Cursor cursor = query(context);
+            if (null == cursor)
+                return;
+            
+            try
+            {
+                int entryColumn = cursor.getColumnIndexOrThrow(_entryColumn);
+                int valueColumn = cursor.getColumnIndexOrThrow(_valueColumn);
+                
+                while (cursor.moveToNext())
+                {
+                    entries.add(cursor.getString(entryColumn));
+                    entryValues.add(cursor.getString(valueColumn));
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+        }
+    }
+    
+    private int _entriesResId;
+    private int _entryValuesResId;
+    private EntryLoader _loader;
+    
+    /* Loaded on first use */
+    private CharSequence[] _entries;
+    private CharSequence[] _entryValues;
+    private ListSummaryIndex _index;
+    private ListEntryFilter _filter;
+    
+    private String _value;
+    private String _clickedValue;
+    
+    /**
+     * Construct a {@link LargeListPreference} from XML
+     */
+    public LargeListPreference(Context context, AttributeSet attrs)
+    {
+        super(context, attrs);
+        
+        /* Only the resource ids are read here, so inflating the preference does not load the arrays */
+        if (null != attrs)
+        {
+            _entriesResId = attrs.getAttributeResourceValue(ANDROID_NAMESPACE, "entries", 0);
+            _entryValuesResId = attrs.getAttributeResourceValue(ANDROID_NAMESPACE, "entryValues", 0);
+        }
+    }
+    
+    /**
+     * Construct a {@link LargeListPreference}
+     */
+    public LargeListPreference(Context context)
+    {
+        this(context, null);
+    }
+    
+    /**
+     * Set the array resources holding the entries and their values
+     * @param entriesResId The resource id of the human readable entries
+     * @param entryValuesResId The resource id of the values, in the same order
+     */
+    public void setEntries(int entriesResId, int entryValuesResId)
+    {
+        _entriesResId = entriesResId;
+        _entryValuesResId = entryValuesResId;
+        _loader = null;
+        unloadEntries();
+    }
+    
+    /**
+     * Set the loader of the entries and their values
+     * @param loader The loader, called when the entries are first needed
+     */
+    public void setEntryLoader(EntryLoader loader)
+    {
+        _loader = loader;
+        unloadEntries();
+    }
+    
+    /**
+     * Get the human readable entries, loading them if necessary
+     */
+    public CharSequence[] getEntries()
+    {
+        loadEntries();
+        return _entries;
+    }
+    
+    /**
+     * Get the values of the entries, loading them if necessary
+     */
+    public CharSequence[] getEntryValues()
+    {
+        loadEntries();
+        return _entryValues;
+    }
+    
+    /**
+     * Get the index of a value
+     * @return The index of <em>value</em> in the entry values, or -1 if it is not present
+     */
+    public int findIndexOfValue(String value)
+    {
+        loadEntries();
+        return _index.indexOf(value);
+    }
+    
+    /**
+     * Get the entry for a value
+     * @return The entry displayed for <em>value</em>, or null if the value is not present
+     */
+    public CharSequence getEntryForValue(String value)
+    {
+        loadEntries();
+        return _index.getEntry(value);
+    }
+    
+    /**
+     * Set the value and persist it
+     */
+    public void setValue(String value)
+    {
+        _value = value;
+        persistString(value);
+    }
+    
+    /**
+     * Get the value
+     */
+    public String getValue()
+    {
+        return _value;
+    }
+    
+    private void loadEntries()
+    {
+        if (null != _index)
+            return;
+        
+        if (null != _loader)
+        {
+            List<CharSequence> entries = new ArrayList<CharSequence>();
+            List<CharSequence> entryValues = new ArrayList<CharSequence>();
+            _loader.load(getContext(), entries, entryValues);
+            
+            if (entries.size() != entryValues.size())
+                throw new IllegalStateException("Loaded " + entries.size() + " entries with " + entryValues.size() + " values for '" + getKey() + "'");
+            
+            _entries = entries.toArray(new CharSequence[entries.size()]);
+            _entryValues = entryValues.toArray(new CharSequence[entryValues.size()]);
+        }
+        else
+        {
+            _entries = 0 == _entriesResId ? new CharSequence[0] : getContext().getResources().getTextArray(_entriesResId);
+            _entryValues = 0 == _entryValuesResId ? new CharSequence[0] : getContext().getResources().getTextArray(_entryValuesResId);
+            
+            if (_entries.length != _entryValues.length)
+                throw new IllegalStateException("LargeListPreference '" + getKey() + "' has " + _entries.length + " entries and " + _entryValues.length + " values");
+        }
+        
+        _index = new ListSummaryIndex(_entries, _entryValues);
+    }
+    
+    private void unloadEntries()
+    {
+        _entries = null;
+        _entryValues = null;
+        _index = null;
+        _filter = null;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected void onPrepareDialogBuilder(AlertDialog.Builder builder)
+    {
+        super.onPrepareDialogBuilder(builder);
+        
+        loadEntries();
+        if (null == _filter)
+            _filter = new ListEntryFilter(_entries, getContext().getResources().getConfiguration().locale);
+        _filter.setQuery(null);
+        _clickedValue = null;
+        
+        Context context = builder.getContext();
+        final EntryAdapter adapter = new EntryAdapter(LayoutInflater.from(context));
+        final ListView list = new ListView(context);
+        list.setChoiceMode(ListView.CHOICE_MODE_SINGLE);
+        list.setFastScrollEnabled(true);
+        list.setAdapter(adapter);
+        list.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+                @Override
+                public void onItemClick(AdapterView<?> parent, View view, int position, long id)
+                {
+                    _clickedValue = _entryValues[_filter.getIndex(position)].toString();
+                    
+                    /* Choosing an entry accepts it, as it does for a list preference */
+                    LargeListPreference.this.onClick(getDialog(), DialogInterface.BUTTON_POSITIVE);
+                    getDialog().dismiss();
+                }
+            });
+        
+        EditText query = new EditText(context);
+        query.setSingleLine(true);
+        query.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS);
+        query.setHint(android.R.string.search_go);
+        query.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after)
+                {
+                }
+                
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count)
+                {
+                }
+                
+                @Override
+                public void afterTextChanged(Editable s)
+                {
+                    if (_filter.setQuery(s))
+                    {
+                        adapter.notifyDataSetChanged();
+                        checkSelectedValue(list, false);
+                    }
+                }
+            });
+        
+        LinearLayout layout = new LinearLayout(context);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.addView(query, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        layout.addView(list, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 0, 1));
+        checkSelectedValue(list, true);
+        
+        builder.setView(layout);
+        
+        /* Choosing an entry closes the dialog, so there is nothing for a positive button to do */
+        builder.setPositiveButton(null, null);
+    }
+    
+    /**
+     * Check the row of the current value among the matching entries
+     * @param scroll true to scroll the row into view
+     */
+    private void checkSelectedValue(ListView list, boolean scroll)
+    {
+        int position = _filter.getPosition(_index.indexOf(_value));
+        
+        if (position < 0)
+        {
+            list.clearChoices();
+            return;
+        }
+        
+        list.setItemChecked(position, true);
+        if (scroll)
+            list.setSelection(position);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected void onDialogClosed(boolean positiveResult)
+    {
+        super.onDialogClosed(positiveResult);
+        
+        String value = _clickedValue;
+        _clickedValue = null;
+        
+        if (positiveResult && null != value && callChangeListener(value))
+            setValue(value);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected Object onGetDefaultValue(TypedArray a, int index)
+    {
+        return a.getString(index);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected void onSetInitialValue(boolean restoreValue, Object defaultValue)
+    {
+        setValue(restoreValue ? getPersistedString(_value) : (String) defaultValue);
+    }
+    
+    /**
+     * Shows the matching entries, creating only as many rows as fit on screen
+     */
+    private class EntryAdapter extends BaseAdapter
+    {
+        private final LayoutInflater _inflater;
+        
+        EntryAdapter(LayoutInflater inflater)
+        {
+            _inflater = inflater;
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public int getCount()
+        {
+            return _filter.getCount();
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public Object getItem(int position)
+        {
+            return _entries[_filter.getIndex(position)];
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public long getItemId(int position)
+        {
+            return _filter.getIndex(position);
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasStableIds()
+        {
+            return true;
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent)
+        {
+            TextView row = (TextView) (null == convertView ? _inflater.inflate(android.R.layout.simple_list_item_single_choice, parent, false) : convertView);
+            row.setText(_entries[_filter.getIndex(position)]);
+            
+            return row;
+        }
+    }
+}
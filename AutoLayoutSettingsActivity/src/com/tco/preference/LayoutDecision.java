@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import android.content.res.Configuration;
+import android.os.Build;
+
+import com.tco.preference.AutoLayoutSettingsActivity.PreferenceLayout;
+import com.tco.preference.AutoLayoutSettingsActivity.PreferenceParameters;
+
+/**
+ * The layout chosen by {@link AutoLayoutSettingsActivity} for a particular configuration
+ * 
+ * {@more}
+ * A {@link LayoutDecision} is computed once per {@link Configuration} from the {@link PreferenceParameters} supplied 
+ * to {@link AutoLayoutSettingsActivity#onConfigureOptions(PreferenceParameters)} and the form factor of the screen, 
+ * and is immutable. The simplified single-pane layout is used on devices without newer APIs like 
+ * {@link android.preference.PreferenceFragment}, and otherwise according to the parameter for the screen's form factor, 
+ * as determined by {@link LayoutRules}.
+ * 
+ * @see AutoLayoutSettingsActivity#getLayoutDecision()
+ */
+public final class LayoutDecision
+{
+    private final PreferenceLayout _layout;
+    private final int _sdkInt;
+    private final int _screenLayoutSize;
+    
+    private LayoutDecision(PreferenceLayout layout, int sdkInt, int screenLayoutSize)
+    {
+        _layout = layout;
+        _sdkInt = sdkInt;
+        _screenLayoutSize = screenLayoutSize;
+    }
+    
+    /**
+     * Decide the layout for a configuration on this device
+     * @param config The configuration to be displayed
+     * @param parameters The layout to be used for each form factor
+     */
+    public static LayoutDecision resolve(Configuration config, PreferenceParameters parameters)
+    {
+        return resolve(Build.VERSION.SDK_INT, config.screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK, 
+                       parameters.Handset, parameters.MediumTablet, parameters.LargeTablet);
+    }
+    
+    /**
+     * Decide the layout from the values that determine it
+     * @param sdkInt The SDK version of the device
+     * @param screenLayoutSize The screen size class, one of the <code>Configuration.SCREENLAYOUT_SIZE_</code> constants
+     * @param handset The layout to be used on a handset
+     * @param mediumTablet The layout to be used on a medium (approximately 7") tablet
+     * @param largeTablet The layout to be used on a large tablet
+     */
+    public static LayoutDecision resolve(int sdkInt, int screenLayoutSize, PreferenceLayout handset, PreferenceLayout mediumTablet, PreferenceLayout largeTablet)
+    {
+        PreferenceLayout layout = LayoutRules.select(sdkInt, screenLayoutSize, PreferenceLayout.SIMPLE, handset, mediumTablet, largeTablet);
+        
+        return new LayoutDecision(layout, sdkInt, screenLayoutSize);
+    }
+    
+    /**
+     * Get the chosen layout
+     */
+    public PreferenceLayout getLayout()
+    {
+        return _layout;
+    }
+    
+    /**
+     * Determine whether the simplified single-pane layout was chosen
+     */
+    public boolean isSimple()
+    {
+        return PreferenceLayout.SIMPLE == _layout;
+    }
+    
+    /**
+     * Determine whether the screen has the form factor of a handset, rather than a tablet
+     */
+    public boolean isHandset()
+    {
+        return _screenLayoutSize < LayoutRules.SCREENLAYOUT_SIZE_LARGE;
+    }
+    
+    /**
+     * Get the SDK version the decision was made for
+     */
+    public int getSdkInt()
+    {
+        return _sdkInt;
+    }
+    
+    /**
+     * Get the screen size class the decision was made for
+     * @return One of the <code>Configuration.SCREENLAYOUT_SIZE_</code> constants
+     */
+    public int getScreenLayoutSize()
+    {
+        return _screenLayoutSize;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "LayoutDecision{" + _layout + ", sdk=" + _sdkInt + ", screenLayoutSize=" + _screenLayoutSize + "}";
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+/**
+ * The rules that choose a layout value for a device
+ * 
+ * {@more}
+ * These rules are kept free of Android dependencies so that they can be exercised on a plain JVM. The screen size 
+ * constants mirror those of <code>android.content.res.Configuration</code> and the SDK constant mirrors 
+ * <code>android.os.Build.VERSION_CODES.HONEYCOMB</code>.
+ * 
+ * @see LayoutDecision
+ */
+public final class LayoutRules
+{
+    /** Mirrors <code>Build.VERSION_CODES.HONEYCOMB</code>, the first release with {@link android.preference.PreferenceFragment} */
+    public static final int SDK_HONEYCOMB = 11;
+    
+    /** Mirrors <code>Configuration.SCREENLAYOUT_SIZE_LARGE</code> */
+    public static final int SCREENLAYOUT_SIZE_LARGE = 0x03;
+    
+    /** Mirrors <code>Configuration.SCREENLAYOUT_SIZE_XLARGE</code> */
+    public static final int SCREENLAYOUT_SIZE_XLARGE = 0x04;
+    
+    private LayoutRules()
+    {
+    }
+    
+    /**
+     * Select the value that applies to a device
+     * @param sdkInt The SDK version of the device
+     * @param screenLayoutSize The screen size class, one of the <code>Configuration.SCREENLAYOUT_SIZE_</code> constants
+     * @param legacy The value for devices older than Honeycomb
+     * @param handset The value for a handset
+     * @param mediumTablet The value for a medium (approximately 7") tablet
+     * @param largeTablet The value for a large tablet
+     * @return The value for the device
+     */
+    public static <T> T select(int sdkInt, int screenLayoutSize, T legacy, T handset, T mediumTablet, T largeTablet)
+    {
+        if (sdkInt < SDK_HONEYCOMB)
+            return legacy;
+        else if (screenLayoutSize < SCREENLAYOUT_SIZE_LARGE)
+            return handset;
+        else if (screenLayoutSize < SCREENLAYOUT_SIZE_XLARGE)
+            return mediumTablet;
+        else
+            return largeTablet;
+    }
+}
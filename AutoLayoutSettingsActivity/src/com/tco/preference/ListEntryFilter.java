@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * An incremental type-to-filter over the entries of a list
+ * 
+ * {@more}
+ * A {@link ListEntryFilter} keeps the positions of the entries that contain the current query, ignoring case, in 
+ * entry order. When the query is extended, as it is while the user types, only the entries that matched the shorter 
+ * query are searched again; any other change searches every entry. Entries are folded to lower case once, on the 
+ * first non-empty query. This class has no Android dependencies and is not thread safe.
+ */
+public final class ListEntryFilter
+{
+    private final CharSequence[] _entries;
+    private final Locale _locale;
+    private String[] _folded;
+    
+    /** The current query, folded to lower case */
+    private String _query = "";
+    
+    /** The indexes of the matching entries, in ascending order, or null if every entry matches */
+    private int[] _matches;
+    private int _count;
+    
+    /**
+     * Construct a {@link ListEntryFilter} that matches every entry
+     * @param entries The entries of the list
+     * @param locale The locale used to fold the entries and queries to lower case
+     */
+    public ListEntryFilter(CharSequence[] entries, Locale locale)
+    {
+        _entries = entries;
+        _locale = locale;
+        _count = entries.length;
+    }
+    
+    /**
+     * Set the query
+     * @param query The text that matching entries contain, or null or an empty string to match every entry
+     * @return true if the matching entries changed
+     */
+    public boolean setQuery(CharSequence query)
+    {
+        String folded = null == query ? "" : query.toString().toLowerCase(_locale);
+        if (folded.equals(_query))
+            return false;
+        
+        if (0 == folded.length())
+        {
+            _query = folded;
+            _matches = null;
+            _count = _entries.length;
+            return true;
+        }
+        
+        if (null == _folded)
+        {
+            _folded = new String[_entries.length];
+            for (int i = 0; i < _entries.length; i++)
+                _folded[i] = null == _entries[i] ? "" : _entries[i].toString().toLowerCase(_locale);
+        }
+        
+        /* Entries that did not contain the shorter query cannot contain this one */
+        boolean narrowing = null != _matches && folded.contains(_query);
+        int[] candidates = narrowing ? _matches : null;
+        int candidateCount = narrowing ? _count : _entries.length;
+        int[] matches = narrowing ? _matches : new int[_entries.length];
+        int count = 0;
+        
+        for (int i = 0; i < candidateCount; i++)
+        {
+            int index = null == candidates ? i : candidates[i];
+            if (_folded[index].contains(folded))
+                matches[count++] = index;
+        }
+        
+        _query = folded;
+        _matches = matches;
+        _count = count;
+        return true;
+    }
+    
+    /**
+     * Get the number of matching entries
+     */
+    public int getCount()
+    {
+        return _count;
+    }
+    
+    /**
+     * Get the index of a matching entry
+     * @param position The position of the entry among the matching entries
+     * @return The index of the entry in the list
+     */
+    public int getIndex(int position)
+    {
+        if (position < 0 || position >= _count)
+            throw new IndexOutOfBoundsException("Position " + position + " of " + _count + " matching entries");
+        
+        return null == _matches ? position : _matches[position];
+    }
+    
+    /**
+     * Get the position of an entry among the matching entries
+     * @param index The index of the entry in the list
+     * @return The position of the entry, or -1 if it does not match
+     */
+    public int getPosition(int index)
+    {
+        if (null == _matches)
+            return index >= 0 && index < _count ? index : -1;
+        
+        int position = Arrays.binarySearch(_matches, 0, _count, index);
+        return position >= 0 ? position : -1;
+    }
+}
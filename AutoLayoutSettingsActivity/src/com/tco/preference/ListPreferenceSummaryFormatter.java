@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import java.util.WeakHashMap;
+
+import android.preference.ListPreference;
+import android.preference.Preference;
+
+/**
+ * A {@link SummaryFormatter} that shows the entry of a {@link ListPreference} that corresponds to its value
+ * 
+ * {@more}
+ * Each list preference is given a {@link ListSummaryIndex} the first time its summary is formatted, so updates are 
+ * constant time regardless of the number of entries. The index is rebuilt if the preference's entries or entry 
+ * values are replaced.
+ */
+public class ListPreferenceSummaryFormatter implements SummaryFormatter
+{
+    /** Indexes keyed by preference. UI thread only */
+    private final WeakHashMap<ListPreference, ListSummaryIndex> _indexes = new WeakHashMap<ListPreference, ListSummaryIndex>();
+    
+    /** {@inheritDoc} */
+    @Override
+    public void applySummary(Preference preference, Object value)
+    {
+        ListSummaryIndex index = getIndex((ListPreference) preference);
+        
+        /* Set the summary to the display value in the preference's 'entries' list. */
+        preference.setSummary(null == value ? null : index.getEntry(value.toString()));
+    }
+    
+    /**
+     * Get the value index for a list preference, building it if necessary
+     */
+    public ListSummaryIndex getIndex(ListPreference preference)
+    {
+        CharSequence[] entries = preference.getEntries();
+        CharSequence[] entryValues = preference.getEntryValues();
+        ListSummaryIndex index = _indexes.get(preference);
+        
+        if (null == index || !index.isFor(entries, entryValues))
+        {
+            index = new ListSummaryIndex(entries, entryValues);
+            _indexes.put(preference, index);
+        }
+        
+        return index;
+    }
+}
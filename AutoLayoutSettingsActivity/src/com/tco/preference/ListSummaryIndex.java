@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import java.util.HashMap;
+
+/**
+ * A hash index from list preference values to their entries
+ * 
+ * {@more}
+ * {@link android.preference.ListPreference#findIndexOfValue(String)} scans the entry values linearly. A 
+ * {@link ListSummaryIndex} is built once from the entries and entry values of a list and answers the same question 
+ * in constant time. It remembers the arrays it was built from so callers can tell when the list has been given new 
+ * entries and the index must be rebuilt. This class has no Android dependencies.
+ */
+public final class ListSummaryIndex
+{
+    private final CharSequence[] _entries;
+    private final CharSequence[] _entryValues;
+    private final HashMap<String, Integer> _indexByValue;
+    
+    /**
+     * Construct a {@link ListSummaryIndex}
+     * @param entries The human readable entries of the list, may be null
+     * @param entryValues The values corresponding to <em>entries</em>, may be null
+     */
+    public ListSummaryIndex(CharSequence[] entries, CharSequence[] entryValues)
+    {
+        _entries = entries;
+        _entryValues = entryValues;
+        
+        int count = null == entryValues ? 0 : entryValues.length;
+        _indexByValue = new HashMap<String, Integer>(Math.max(16, (int) (count / 0.75f) + 1));
+        
+        /* Later duplicates replace earlier ones, so the last of any duplicate values wins, as it does for findIndexOfValue */
+        for (int i = 0; i < count; i++)
+            if (null != entryValues[i])
+                _indexByValue.put(entryValues[i].toString(), Integer.valueOf(i));
+    }
+    
+    /**
+     * Determine whether this index was built from the given arrays
+     * @return true if <em>entries</em> and <em>entryValues</em> are the same array objects this index was built from
+     */
+    public boolean isFor(CharSequence[] entries, CharSequence[] entryValues)
+    {
+        return _entries == entries && _entryValues == entryValues;
+    }
+    
+    /**
+     * Get the index of a value
+     * @param value A list value
+     * @return The index of <em>value</em> in the entry values, or -1 if it is not present
+     */
+    public int indexOf(String value)
+    {
+        Integer index = null == value ? null : _indexByValue.get(value);
+        
+        return null == index ? -1 : index.intValue();
+    }
+    
+    /**
+     * Get the entry for a value
+     * @param value A list value
+     * @return The entry displayed for <em>value</em>, or null if the value is not present or has no entry
+     */
+    public CharSequence getEntry(String value)
+    {
+        int index = indexOf(value);
+        
+        return index >= 0 && null != _entries && index < _entries.length ? _entries[index] : null;
+    }
+    
+    /**
+     * Get the number of values in the index
+     */
+    public int size()
+    {
+        return _indexByValue.size();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import java.lang.reflect.Method;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * A {@link SettingsTraceSink} that writes phase timings to logcat
+ * 
+ * {@more}
+ * Each completed phase is logged at debug level with its duration, section title and resource id. On API 18 and 
+ * later each phase is also emitted as an <code>android.os.Trace</code> section, so phases appear in systrace captures. 
+ * The project builds against API 17, so the trace methods are looked up by reflection, once.
+ */
+public class LogcatTraceSink implements SettingsTraceSink
+{
+    private static final String TAG = "SettingsTrace";
+    
+    /** Maximum length of a trace section name */
+    private static final int MAX_TRACE_NAME = 127;
+    
+    /** The first SDK version with <code>android.os.Trace</code>, which is newer than the build target */
+    private static final int SDK_TRACE = 18;
+    
+    /* Null before API 18 or if the methods cannot be found */
+    private static final Method _beginSection;
+    private static final Method _endSection;
+    
+    static
+    {
+        Method beginSection = null;
+        Method endSection = null;
+        
+        if (Build.VERSION.SDK_INT >= SDK_TRACE)
+        {
+            try
+            {
+                Class<?> trace = Class.forName("android.os.Trace");
+                beginSection = trace.getMethod("beginSection", String.class);
+                endSection = trace.getMethod("endSection");
+            }
+            catch (Exception e)
+            {
+                Log.w(TAG, "android.os.Trace is not available", e);
+                beginSection = null;
+                endSection = null;
+            }
+        }
+        
+        _beginSection = beginSection;
+        _endSection = endSection;
+    }
+    
+    private final Resources _resources;
+    
+    /**
+     * Construct a {@link LogcatTraceSink}
+     * @param context A context used to resolve section titles and resource names
+     */
+    public LogcatTraceSink(Context context)
+    {
+        _resources = context.getApplicationContext().getResources();
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void onBegin(Phase phase, PreferenceSection section, String key)
+    {
+        if (null != _beginSection)
+        {
+            String name = describe(phase, section, key);
+            invoke(_beginSection, name.length() > MAX_TRACE_NAME ? name.substring(0, MAX_TRACE_NAME) : name);
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void onEnd(Phase phase, PreferenceSection section, String key, long elapsedNanos)
+    {
+        if (null != _endSection)
+            invoke(_endSection);
+        
+        if (Log.isLoggable(TAG, Log.DEBUG))
+            Log.d(TAG, describe(phase, section, key) + " " + (elapsedNanos / 1000) + "us");
+    }
+    
+    private static void invoke(Method method, Object... args)
+    {
+        try
+        {
+            method.invoke(null, args);
+        }
+        catch (Exception e)
+        {
+            /* Tracing is best effort and must never break the settings screen */
+            Log.w(TAG, "Unable to call Trace." + method.getName(), e);
+        }
+    }
+    
+    private String describe(Phase phase, PreferenceSection section, String key)
+    {
+        StringBuilder out = new StringBuilder(phase.name());
+        
+        if (null != section)
+        {
+            out.append(' ').append(PreferenceSection.NO_TITLE == section.getTitle() ? "(untitled)" : resourceName(section.getTitle(), true));
+            out.append(' ').append(resourceName(section.getPref(), false));
+        }
+        
+        if (null != key)
+            out.append(" key=").append(key);
+        
+        return out.toString();
+    }
+    
+    private String resourceName(int resId, boolean text)
+    {
+        try
+        {
+            return text ? _resources.getString(resId) : _resources.getResourceEntryName(resId);
+        }
+        catch (Resources.NotFoundException e)
+        {
+            return "0x" + Integer.toHexString(resId);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks;
+import android.content.Intent;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Bundle;
+import android.preference.PreferenceActivity;
+import android.preference.PreferenceActivity.Header;
+
+/**
+ * A process-wide cache of parsed preference headers
+ * 
+ * {@more}
+ * {@link PreferenceActivity#loadHeadersFromResource(int, List)} parses the header XML every time headers are built, 
+ * which happens on each call to {@link PreferenceActivity#invalidateHeaders()} and each time the activity is recreated. 
+ * This cache parses a header resource once per locale and keeps the resulting {@link Header} objects as prototypes; 
+ * each request receives its own copies, so activities are free to modify the headers they are given. The cache is 
+ * cleared when the locale changes or the system is low on memory. 
+ * <p>
+ * Header resources are assumed not to vary with configuration qualifiers other than the locale. Call {@link #clear()} 
+ * if headers must be re-read for any other reason. This class must only be used from the UI thread.
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+public final class PreferenceHeaderCache
+{
+    private static final HashMap<Integer, List<Header>> _prototypes = new HashMap<Integer, List<Header>>();
+    private static Locale _locale;
+    private static boolean _registered;
+    
+    private PreferenceHeaderCache()
+    {
+    }
+    
+    /**
+     * Adds the headers defined in an XML resource to a list, parsing the resource only if it is not already cached
+     * @param activity The activity whose headers are being built
+     * @param resId The id of a preference-headers XML resource
+     * @param target The list to which copies of the headers are added
+     */
+    public static void loadHeaders(PreferenceActivity activity, int resId, List<Header> target)
+    {
+        Locale locale = activity.getResources().getConfiguration().locale;
+        
+        register(activity);
+        if (null == _locale || !_locale.equals(locale))
+        {
+            _prototypes.clear();
+            _locale = locale;
+        }
+        
+        Integer key = Integer.valueOf(resId);
+        List<Header> prototypes = _prototypes.get(key);
+        
+        if (null == prototypes)
+        {
+            prototypes = new ArrayList<Header>();
+            activity.loadHeadersFromResource(resId, prototypes);
+            _prototypes.put(key, prototypes);
+        }
+        
+        for (Header prototype : prototypes)
+            target.add(copy(prototype));
+    }
+    
+    /**
+     * Discards all cached headers
+     */
+    public static void clear()
+    {
+        _prototypes.clear();
+        _locale = null;
+    }
+    
+    /**
+     * Makes a copy of a header that shares none of its mutable state
+     */
+    private static Header copy(Header prototype)
+    {
+        Header header = new Header();
+        
+        header.id = prototype.id;
+        header.titleRes = prototype.titleRes;
+        header.title = prototype.title;
+        header.summaryRes = prototype.summaryRes;
+        header.summary = prototype.summary;
+        header.breadCrumbTitleRes = prototype.breadCrumbTitleRes;
+        header.breadCrumbTitle = prototype.breadCrumbTitle;
+        header.breadCrumbShortTitleRes = prototype.breadCrumbShortTitleRes;
+        header.breadCrumbShortTitle = prototype.breadCrumbShortTitle;
+        header.iconRes = prototype.iconRes;
+        header.fragment = prototype.fragment;
+        header.fragmentArguments = null == prototype.fragmentArguments ? null : new Bundle(prototype.fragmentArguments);
+        header.intent = null == prototype.intent ? null : new Intent(prototype.intent);
+        header.extras = null == prototype.extras ? null : new Bundle(prototype.extras);
+        
+        return header;
+    }
+    
+    private static void register(PreferenceActivity activity)
+    {
+        if (_registered)
+            return;
+        
+        _registered = true;
+        activity.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks() {
+                @Override
+                public void onConfigurationChanged(Configuration newConfig)
+                {
+                    if (null != _locale && !_locale.equals(newConfig.locale))
+                        clear();
+                }
+                
+                @Override
+                public void onLowMemory()
+                {
+                    clear();
+                }
+            });
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.util.HashSet;
+
+import android.content.Context;
+import android.os.Process;
+
+/**
+ * Loads shared preferences files on a background thread
+ * 
+ * {@more}
+ * The first read of a {@link android.content.SharedPreferences} file blocks until the whole file has been read and 
+ * parsed, which can take tens of milliseconds for a large file. {@link #start(Context, String...)} begins loading 
+ * the files a settings screen uses on a background thread so that the work overlaps with inflating the activity's 
+ * views. Nothing else is needed to wait for the load: a {@link android.content.SharedPreferences} read on the UI 
+ * thread only blocks until the file it reads has been loaded. Loaded preferences stay in memory for the life of the 
+ * process, so each file is only loaded once.
+ */
+public final class PreferencePreloader
+{
+    /** The files whose loading has been started. Guarded by the class lock */
+    private static final HashSet<String> _started = new HashSet<String>();
+    
+    private PreferencePreloader()
+    {
+    }
+    
+    /**
+     * Get the name of the default shared preferences file, as used by 
+     * {@link android.preference.PreferenceManager#getDefaultSharedPreferences(Context)}
+     * @param context Any context of the application
+     */
+    public static String getDefaultSharedPreferencesName(Context context)
+    {
+        return context.getPackageName() + "_preferences";
+    }
+    
+    /**
+     * Start loading shared preferences files, except those whose loading has already been started
+     * @param context Any context of the application
+     * @param names The names of the files
+     */
+    public static void start(Context context, String... names)
+    {
+        final HashSet<String> load = new HashSet<String>(names.length);
+        synchronized (PreferencePreloader.class)
+        {
+            for (String name : names)
+                if (_started.add(name))
+                    load.add(name);
+        }
+        
+        if (load.isEmpty())
+            return;
+        
+        final Context application = context.getApplicationContext();
+        
+        new Thread("PreferencePreloader") {
+                @Override
+                public void run()
+                {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    
+                    /* Any read waits for the file to be loaded */
+                    for (String name : load)
+                        application.getSharedPreferences(name, Context.MODE_PRIVATE).contains("");
+                }
+            }.start();
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A prefix-capable inverted index over the text of a set of preferences
+ * 
+ * {@more}
+ * Each entry in the index describes one preference or header, identified by its key and the position of the section 
+ * or header that shows it. The words of an entry's text (its key, title, summary, list entries and so on) are 
+ * indexed when the index is built and stored compactly as a sorted array of terms with a parallel array of posting 
+ * lists, so a query word is matched against every term it prefixes with a binary search followed by a short scan. 
+ * <p>
+ * The text of summaries that follow a preference's value changes after the index is built, so each entry may also 
+ * have dynamic text, set with {@link #updateText(String, CharSequence)}, which is replaced wholesale on each update. 
+ * Its words are kept separately in a sorted map to the entries that contain them, so they are matched by prefix in 
+ * the same way as the words indexed when the index was built. 
+ * <p>
+ * An index is built with a {@link Builder}. It is not thread safe. This class has no Android dependencies.
+ */
+public final class PreferenceSearchIndex
+{
+    /**
+     * A preference or header found by {@link PreferenceSearchIndex#search(String, int)}
+     */
+    public static final class Result
+    {
+        private final String _key;
+        private final CharSequence _title;
+        private final int _section;
+        private final int _header;
+        
+        Result(String key, CharSequence title, int section, int header)
+        {
+            _key = key;
+            _title = title;
+            _section = section;
+            _header = header;
+        }
+        
+        /**
+         * Get the key of the preference
+         * @return The key, or null if the result is a header or a preference without a key, such as a category
+         */
+        public String getKey()
+        {
+            return _key;
+        }
+        
+        /**
+         * Get the title of the preference or header
+         * @return The title, or null if it has none
+         */
+        public CharSequence getTitle()
+        {
+            return _title;
+        }
+        
+        /**
+         * Get the position of the section that shows the result
+         * @return The position, or -1 if the result is not shown by any section
+         */
+        public int getSection()
+        {
+            return _section;
+        }
+        
+        /**
+         * Get the position of the header that shows the result
+         * @return The position, or -1 if the result is not shown by any header
+         */
+        public int getHeader()
+        {
+            return _header;
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public String toString()
+        {
+            return "Result[key=" + _key + ", title=" + _title + ", section=" + _section + ", header=" + _header + "]";
+        }
+    }
+    
+    /**
+     * Collects the entries and text of a {@link PreferenceSearchIndex}
+     */
+    public static final class Builder
+    {
+        private final Locale _locale;
+        private final ArrayList<Result> _entries = new ArrayList<Result>();
+        private final TreeMap<String, BitSet> _postings = new TreeMap<String, BitSet>();
+        
+        /**
+         * Construct a {@link Builder} that folds text to lower case in the given locale
+         */
+        public Builder(Locale locale)
+        {
+            _locale = locale;
+        }
+        
+        /**
+         * Add an entry. The key and title of the entry are indexed. 
+         * @param key The key of the preference, or null
+         * @param title The title of the preference or header, or null
+         * @param section The position of the section showing the entry, or -1
+         * @param header The position of the header showing the entry, or -1
+         * @return The id of the new entry, used to add more text to it
+         */
+        public int addEntry(String key, CharSequence title, int section, int header)
+        {
+            int entry = _entries.size();
+            
+            _entries.add(new Result(key, title, section, header));
+            addText(entry, key);
+            addText(entry, title);
+            
+            return entry;
+        }
+        
+        /**
+         * Index text for an entry
+         * @param entry The id returned by {@link #addEntry(String, CharSequence, int, int)}
+         * @param text The text, may be null
+         */
+        public void addText(int entry, CharSequence text)
+        {
+            for (String term : tokenize(text, _locale))
+            {
+                BitSet entries = _postings.get(term);
+                if (null == entries)
+                {
+                    entries = new BitSet();
+                    _postings.put(term, entries);
+                }
+                
+                entries.set(entry);
+            }
+        }
+        
+        /**
+         * Build the index
+         */
+        public PreferenceSearchIndex build()
+        {
+            return new PreferenceSearchIndex(this);
+        }
+    }
+    
+    private final Locale _locale;
+    private final Result[] _entries;
+    private final HashMap<String, Integer> _entryByKey;
+    
+    /** Every indexed word, in ascending order */
+    private final String[] _terms;
+    
+    /** The postings of _terms[i] are _postings[_postingStart[i]] up to but excluding _postings[_postingStart[i + 1]] */
+    private final int[] _postingStart;
+    private final int[] _postings;
+    
+    /** The dynamic text of each entry as given, and as words, or null */
+    private final HashMap<Integer, String> _dynamicText = new HashMap<Integer, String>();
+    private final HashMap<Integer, String[]> _dynamicTerms = new HashMap<Integer, String[]>();
+    
+    /** The entries with each word of dynamic text, in ascending order of word */
+    private final TreeMap<String, BitSet> _dynamicPostings = new TreeMap<String, BitSet>();
+    
+    private PreferenceSearchIndex(Builder builder)
+    {
+        _locale = builder._locale;
+        _entries = builder._entries.toArray(new Result[builder._entries.size()]);
+        _entryByKey = new HashMap<String, Integer>();
+        
+        for (int i = 0; i < _entries.length; i++)
+            if (null != _entries[i].getKey() && !_entryByKey.containsKey(_entries[i].getKey()))
+                _entryByKey.put(_entries[i].getKey(), Integer.valueOf(i));
+        
+        int postingCount = 0;
+        for (BitSet entries : builder._postings.values())
+            postingCount += entries.cardinality();
+        
+        _terms = builder._postings.keySet().toArray(new String[builder._postings.size()]);
+        _postingStart = new int[_terms.length + 1];
+        _postings = new int[postingCount];
+        
+        int t = 0;
+        int p = 0;
+        for (Map.Entry<String, BitSet> term : builder._postings.entrySet())
+        {
+            _postingStart[t++] = p;
+            
+            BitSet entries = term.getValue();
+            for (int e = entries.nextSetBit(0); e >= 0; e = entries.nextSetBit(e + 1))
+                _postings[p++] = e;
+        }
+        _postingStart[t] = p;
+    }
+    
+    /**
+     * Replace the dynamic text of the entry for a key, such as a summary that reflects the preference's value
+     * @param key The key of the preference
+     * @param text The new text, or null to remove it
+     * @return true if the index changed
+     */
+    public boolean updateText(String key, CharSequence text)
+    {
+        Integer entry = _entryByKey.get(key);
+        if (null == entry)
+            return false;
+        
+        String value = null == text ? null : text.toString();
+        String current = _dynamicText.get(entry);
+        if (null == value ? null == current : value.equals(current))
+            return false;
+        
+        String[] previous;
+        if (null == value)
+        {
+            _dynamicText.remove(entry);
+            previous = _dynamicTerms.remove(entry);
+        }
+        else
+        {
+            List<String> terms = tokenize(value, _locale);
+            _dynamicText.put(entry, value);
+            previous = _dynamicTerms.put(entry, terms.toArray(new String[terms.size()]));
+        }
+        
+        if (null != previous)
+            for (String term : previous)
+                removePosting(term, entry.intValue());
+        
+        if (null != value)
+            for (String term : _dynamicTerms.get(entry))
+                addPosting(term, entry.intValue());
+        
+        return true;
+    }
+    
+    /**
+     * Record that an entry's dynamic text has a word
+     */
+    private void addPosting(String term, int entry)
+    {
+        BitSet entries = _dynamicPostings.get(term);
+        if (null == entries)
+        {
+            entries = new BitSet();
+            _dynamicPostings.put(term, entries);
+        }
+        
+        entries.set(entry);
+    }
+    
+    /**
+     * Forget that an entry's dynamic text has a word
+     */
+    private void removePosting(String term, int entry)
+    {
+        /* A word repeated in the text was removed the first time */
+        BitSet entries = _dynamicPostings.get(term);
+        if (null == entries)
+            return;
+        
+        entries.clear(entry);
+        if (entries.isEmpty())
+            _dynamicPostings.remove(term);
+    }
+    
+    /**
+     * Find the entries matching a query
+     * 
+     * {@more}
+     * An entry matches if every word of the query is a prefix of a word of its text, ignoring case. 
+     * @param query The words to search for
+     * @param limit The maximum number of results
+     * @return The matching entries in the order they were added, or an empty list if the query has no words
+     */
+    public List<Result> search(String query, int limit)
+    {
+        List<String> words = tokenize(query, _locale);
+        if (words.isEmpty())
+            return new ArrayList<Result>(0);
+        
+        BitSet matches = null;
+        for (String word : words)
+        {
+            BitSet wordMatches = match(word);
+            
+            if (null == matches)
+                matches = wordMatches;
+            else
+                matches.and(wordMatches);
+            
+            if (matches.isEmpty())
+                break;
+        }
+        
+        ArrayList<Result> results = new ArrayList<Result>(Math.min(limit, matches.cardinality()));
+        for (int e = matches.nextSetBit(0); e >= 0 && results.size() < limit; e = matches.nextSetBit(e + 1))
+            results.add(_entries[e]);
+        
+        return results;
+    }
+    
+    /**
+     * Get the number of entries in the index
+     */
+    public int size()
+    {
+        return _entries.length;
+    }
+    
+    /**
+     * Get the number of distinct words indexed when the index was built
+     */
+    public int getTermCount()
+    {
+        return _terms.length;
+    }
+    
+    /**
+     * Find the entries with a word that starts with a prefix
+     */
+    private BitSet match(String prefix)
+    {
+        BitSet matches = new BitSet(_entries.length);
+        
+        int first = Arrays.binarySearch(_terms, prefix);
+        if (first < 0)
+            first = -first - 1;
+        
+        for (int t = first; t < _terms.length && _terms[t].startsWith(prefix); t++)
+            for (int p = _postingStart[t]; p < _postingStart[t + 1]; p++)
+                matches.set(_postings[p]);
+        
+        for (Map.Entry<String, BitSet> term : _dynamicPostings.tailMap(prefix).entrySet())
+        {
+            if (!term.getKey().startsWith(prefix))
+                break;
+            
+            matches.or(term.getValue());
+        }
+        
+        return matches;
+    }
+    
+    /**
+     * Split text into lower case words of letters and digits
+     */
+    static List<String> tokenize(CharSequence text, Locale locale)
+    {
+        ArrayList<String> words = new ArrayList<String>();
+        if (null == text)
+            return words;
+        
+        String folded = text.toString().toLowerCase(locale);
+        int start = -1;
+        
+        for (int i = 0; i <= folded.length(); i++)
+        {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            
+            if (wordChar && start < 0)
+            {
+                start = i;
+            }
+            else if (!wordChar && start >= 0)
+            {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        
+        return words;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Build;
+import android.preference.PreferenceActivity.Header;
+import android.util.Log;
+
+/**
+ * Builds a {@link PreferenceSearchIndex} from preference sections and headers
+ * 
+ * {@more}
+ * Section resources are read with a plain XML parser rather than inflated, so no {@link android.preference.Preference} 
+ * objects are created. The key, title, summary, summary on and off text, dialog title and list entries of each 
+ * preference are indexed. A preference is attributed to the header whose title matches the title of its section, so 
+ * that a result can be shown in either layout.
+ */
+public final class PreferenceSearchIndexer
+{
+    private static final String TAG = "PreferenceSearchIndexer";
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    private static final String[] TEXT_ATTRIBUTES = { "summary", "summaryOn", "summaryOff", "dialogTitle" };
+    
+    private PreferenceSearchIndexer()
+    {
+    }
+    
+    /**
+     * Build an index of preference sections and headers
+     * @param context The context used to read resources
+     * @param sections The sections of the simple layout, or null
+     * @param headers The headers of the multi-pane layout, or null
+     * @return The index
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public static PreferenceSearchIndex build(Context context, List<PreferenceSection> sections, List<Header> headers)
+    {
+        Resources res = context.getResources();
+        PreferenceSearchIndex.Builder builder = new PreferenceSearchIndex.Builder(res.getConfiguration().locale);
+        
+        if (null != headers)
+        {
+            for (int h = 0; h < headers.size(); h++)
+            {
+                Header header = headers.get(h);
+                int entry = builder.addEntry(null, header.getTitle(res), findSection(sections, header), h);
+                builder.addText(entry, header.getSummary(res));
+            }
+        }
+        
+        if (null != sections)
+        {
+            for (int s = 0; s < sections.size(); s++)
+            {
+                PreferenceSection section = sections.get(s);
+                indexSection(res, builder, section, s, findHeader(headers, section));
+            }
+        }
+        
+        return builder.build();
+    }
+    
+    private static void indexSection(Resources res, PreferenceSearchIndex.Builder builder, PreferenceSection section, int position, int header)
+    {
+        if (PreferenceSection.NO_TITLE != section.getTitle())
+            builder.addEntry(null, res.getText(section.getTitle()), position, header);
+        
+        XmlResourceParser parser = res.getXml(section.getPref());
+        try
+        {
+            for (int type = parser.getEventType(); XmlPullParser.END_DOCUMENT != type; type = parser.next())
+            {
+                if (XmlPullParser.START_TAG != type || 1 == parser.getDepth())
+                    continue;
+                
+                int entry = builder.addEntry(parser.getAttributeValue(ANDROID_NS, "key"), getText(res, parser, "title"), position, header);
+                
+                for (String attribute : TEXT_ATTRIBUTES)
+                    builder.addText(entry, getText(res, parser, attribute));
+                
+                int entries = parser.getAttributeResourceValue(ANDROID_NS, "entries", 0);
+                if (0 != entries)
+                    for (CharSequence text : res.getTextArray(entries))
+                        builder.addText(entry, text);
+            }
+        }
+        catch (XmlPullParserException e)
+        {
+            Log.w(TAG, "Unable to index preferences", e);
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Unable to index preferences", e);
+        }
+        finally
+        {
+            parser.close();
+        }
+    }
+    
+    /**
+     * Reads a text attribute that may be either a string resource or a literal
+     */
+    private static CharSequence getText(Resources res, XmlResourceParser parser, String attribute)
+    {
+        int resId = parser.getAttributeResourceValue(ANDROID_NS, attribute, 0);
+        
+        return 0 != resId ? res.getText(resId) : parser.getAttributeValue(ANDROID_NS, attribute);
+    }
+    
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static int findHeader(List<Header> headers, PreferenceSection section)
+    {
+        if (null == headers || PreferenceSection.NO_TITLE == section.getTitle())
+            return -1;
+        
+        for (int h = 0; h < headers.size(); h++)
+            if (headers.get(h).titleRes == section.getTitle())
+                return h;
+        
+        return -1;
+    }
+    
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static int findSection(List<PreferenceSection> sections, Header header)
+    {
+        if (null == sections || 0 == header.titleRes)
+            return -1;
+        
+        for (int s = 0; s < sections.size(); s++)
+            if (sections.get(s).getTitle() == header.titleRes)
+                return s;
+        
+        return -1;
+    }
+}
@@ -28,6 +28,9 @@
 package com.tco.preference;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import android.content.Context;
 
@@ -41,15 +44,28 @@ import android.content.Context;
  * section includes an optional preference header title string resource and the preference layout resource. A 
  * {@link PreferenceSection} may also specify a set of {@link String} keys which represent preference descriptions
  * that are bound at runtime. 
+ * <p>
+ * A section may carry a variant for handsets or tablets, such as a compact body with fewer preferences and bound 
+ * keys for small screens. {@link #resolve(boolean)} picks the section to show on a form factor, so a device never 
+ * inflates or binds the preferences of a variant it does not show.
+ * <p>
+ * A {@link PreferenceSection} cannot be changed once it has been created, so it may be kept in a static field and 
+ * read from any thread. Its bound keys are interned and stored in an array of exactly the right size.
  */
-public class PreferenceSection
+public final class PreferenceSection
 {
     /** Constant to indicate that no header title shoud be displayed */
     public final static int NO_TITLE = -1;
     
-    private int _titleId;
-    private int _prefId;
-    private ArrayList<String> _boundValues = new ArrayList<String>();
+    private static final String[] NO_BOUND_VALUES = new String[0];
+    
+    private final int _titleId;
+    private final int _prefId;
+    private final CompiledPreferences _compiledPref;
+    private final boolean _lazy;
+    private final String[] _boundValues;
+    private final PreferenceSection _handsetVariant;
+    private final PreferenceSection _tabletVariant;
     
     /**
      * Construct a {@link PreferenceSection} with a title string resource and a preference layout resource 
@@ -69,21 +85,30 @@ public class PreferenceSection
      */
     public PreferenceSection(int title, int prefs, String [] boundValues)
     {
-        _titleId = title;
-        _prefId = prefs;
-        
-        if (null != boundValues)
-            for (String val : boundValues)
-                addBoundValue(val);
+        this(title, prefs, null, false, null == boundValues ? null : Arrays.asList(boundValues), null, null);
     }
     
-    /**
-     * Adds a new entry to the set keys representing description values that should be bound to defined preferences at runtime
-     * @param val A {@link String} key defined in the preference layout resource specified to {@link PreferenceSection#PreferenceSection(int, int)} 
-     */
-    public void addBoundValue(String val)
+    private PreferenceSection(int title, int prefs, CompiledPreferences compiled, boolean lazy, List<String> boundValues, 
+                              PreferenceSection handsetVariant, PreferenceSection tabletVariant)
     {
-        _boundValues.add(val);
+        _titleId = title;
+        _prefId = prefs;
+        _compiledPref = compiled;
+        _lazy = lazy;
+        _handsetVariant = handsetVariant;
+        _tabletVariant = tabletVariant;
+        
+        if (null == boundValues || boundValues.isEmpty())
+        {
+            _boundValues = NO_BOUND_VALUES;
+        }
+        else
+        {
+            /* Keys repeat across sections and activities, so share one copy of each */
+            _boundValues = new String[boundValues.size()];
+            for (int i = 0; i < _boundValues.length; i++)
+                _boundValues[i] = boundValues.get(i).intern();
+        }
     }
 
     /**
@@ -104,13 +129,70 @@ public class PreferenceSection
         return _prefId;
     }
 
+    /**
+     * Get the compiled preference body
+     * @return the {@link CompiledPreferences} used in place of the XML layout resource, or null if the XML resource should be inflated
+     */
+    public CompiledPreferences getCompiledPreference()
+    {
+        return _compiledPref;
+    }
+
+    /**
+     * Determine whether the section may be attached on demand
+     * @return true if the section is only inflated when it is scrolled near in a simple layout
+     */
+    public boolean isLazy()
+    {
+        return _lazy;
+    }
+
     /**
      * Get the bound description values
-     * @return A set of keys representing description values that should be bound at runtime
+     * @return An unmodifiable list of keys representing description values that should be bound at runtime, created 
+     * on each call; loops should use {@link #getBoundValueCount()} and {@link #getBoundValue(int)} instead
+     */
+    public List<String> getBoundValues()
+    {
+        return Collections.unmodifiableList(Arrays.asList(_boundValues));
+    }
+
+    /**
+     * Get the number of bound description values
+     */
+    public int getBoundValueCount()
+    {
+        return _boundValues.length;
+    }
+
+    /**
+     * Get a bound description value
+     * @param index The index of the value, from 0 to {@link #getBoundValueCount()} - 1
+     * @return The key of the bound value
+     */
+    public String getBoundValue(int index)
+    {
+        return _boundValues[index];
+    }
+
+    /**
+     * Get the section to show on a form factor
+     * @param handset true for a handset, false for a tablet
+     * @return The variant for the form factor, or this section if it has none
      */
-    public ArrayList<String> getBoundValues()
+    public PreferenceSection resolve(boolean handset)
     {
-        return _boundValues;
+        PreferenceSection variant = handset ? _handsetVariant : _tabletVariant;
+        
+        return null == variant ? this : variant;
+    }
+
+    /**
+     * Determine whether the section has a variant for either form factor
+     */
+    public boolean hasVariants()
+    {
+        return null != _handsetVariant || null != _tabletVariant;
     }
 
     /**
@@ -126,11 +208,19 @@ public class PreferenceSection
     /**
      * Utility class used to build a new {@link PreferenceSection} 
      *
+     * {@more}
+     * Each call to {@link #create()} returns a new section holding a copy of the builder's current state, so a 
+     * builder may be reused or changed after a section has been created without affecting that section.
      */
     public static class Builder
     {
-        /** @hide */
-        final PreferenceSection _pref = new PreferenceSection(0, 0);
+        private int _titleId;
+        private int _prefId;
+        private CompiledPreferences _compiledPref;
+        private boolean _lazy;
+        private final ArrayList<String> _boundValues = new ArrayList<String>();
+        private PreferenceSection _handsetVariant;
+        private PreferenceSection _tabletVariant;
         
         /**
          * Set the preference header title
@@ -139,7 +229,7 @@ public class PreferenceSection
          */
         public Builder setTitle(int title)
         {
-            _pref._titleId = title;
+            _titleId = title;
             
             return this;
         }
@@ -151,7 +241,41 @@ public class PreferenceSection
          */
         public Builder setPreference(int pref)
         {
-            _pref._prefId = pref;
+            _prefId = pref;
+            
+            return this;
+        }
+        
+        /**
+         * Set a compiled preference body to be used in place of inflating the preference layout resource
+         * 
+         * {@more}
+         * The resource specified in {@link #setPreference(int)} is still used as a fallback when <em>compiled</em> is null, 
+         * so a section can be switched between the generated code and the XML resource without any other changes. 
+         * A section may be shared between threads and activities, so <em>compiled</em> should hold no state of its own.
+         * @param compiled A {@link CompiledPreferences} generated from the preference layout resource, or null to inflate the resource
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder setCompiledPreference(CompiledPreferences compiled)
+        {
+            _compiledPref = compiled;
+            
+            return this;
+        }
+        
+        /**
+         * Set whether the section may be attached on demand
+         * 
+         * {@more}
+         * In a simple layout, a lazy section that starts below the first screen of preferences is shown as a placeholder 
+         * category and is only inflated and bound when the user scrolls near it. Preferences in a section that has not 
+         * been attached yet cannot be found with {@link android.preference.PreferenceActivity#findPreference(CharSequence)}.
+         * @param lazy true to defer inflation of the section until it is needed
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder setLazy(boolean lazy)
+        {
+            _lazy = lazy;
             
             return this;
         }
@@ -163,7 +287,10 @@ public class PreferenceSection
          */
         public Builder addBoundValue(String val)
         {
-            _pref.addBoundValue(val);
+            if (null == val)
+                throw new NullPointerException("Bound value key is null");
+            
+            _boundValues.add(val);
             
             return this;
         }
@@ -176,7 +303,28 @@ public class PreferenceSection
          */
         public Builder addBoundValue(int id, Context context)
         {
-            _pref.addBoundValue(context.getResources().getString(id));
+            return addBoundValue(context.getResources().getString(id));
+        }
+        
+        /**
+         * Set the section shown in place of this one on a form factor
+         * 
+         * {@more}
+         * The variant has its own body and bound values, and normally the same title, so that it takes the place of 
+         * this section in the headers and search results of both layouts.
+         * @param handset true for the variant shown on handsets, false for the variant shown on tablets
+         * @param variant The variant, which may not have variants of its own, or null to show this section
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder setVariant(boolean handset, PreferenceSection variant)
+        {
+            if (null != variant && variant.hasVariants())
+                throw new IllegalArgumentException("A section variant cannot have variants of its own");
+            
+            if (handset)
+                _handsetVariant = variant;
+            else
+                _tabletVariant = variant;
             
             return this;
         }
@@ -186,7 +334,7 @@ public class PreferenceSection
          */
         public PreferenceSection create()
         {
-            return _pref;
+            return new PreferenceSection(_titleId, _prefId, _compiledPref, _lazy, _boundValues, _handsetVariant, _tabletVariant);
         }
         
     }
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Build;
+import android.os.Bundle;
+import android.preference.PreferenceActivity.Header;
+import android.util.Log;
+
+/**
+ * The sections of a settings screen, read from a single XML resource
+ * 
+ * {@more}
+ * A section manifest describes every {@link PreferenceSection} once, for both the simple and multi-pane layouts. 
+ * Each <code>&lt;section&gt;</code> element names the preference XML that forms its body and may give a title, a 
+ * fragment used to show it in the multi-pane layout, the form factors it applies to and whether it is lazy. Each 
+ * <code>&lt;bound-value&gt;</code> child gives the key of a preference whose summary is bound to its value. A 
+ * <code>&lt;variant&gt;</code> child gives the body and bound values shown in place of the section's own on handsets 
+ * or on tablets, and takes the section's title and laziness unless it gives its own.
+ * <p>
+ * A section or variant with <code>compiled="true"</code> creates its preferences with the 
+ * {@link CompiledPreferences} that the preference compiler generated for its body, found through the 
+ * <code>CompiledPreferenceIndex</code> class in the application's package. If the application was built without the 
+ * preference compiler the body is inflated from XML as usual. A variant takes the section's setting unless it gives 
+ * its own.
+ * 
+ * <pre>
+ * &lt;preference-sections&gt;
+ *     &lt;section
+ *         title="@string/pref_header_general"
+ *         preferences="@xml/pref_general"
+ *         fragment="com.example.SettingsActivity$GeneralPreferenceFragment"
+ *         formFactor="tablet"&gt;
+ *         &lt;bound-value key="example_text" /&gt;
+ *         &lt;variant formFactor="handset" preferences="@xml/pref_general_compact"&gt;
+ *             &lt;bound-value key="example_text" /&gt;
+ *         &lt;/variant&gt;
+ *     &lt;/section&gt;
+ * &lt;/preference-sections&gt;
+ * </pre>
+ * 
+ * The <code>formFactor</code> of a section is <code>handset</code>, <code>tablet</code> or, by default, <code>any</code>; 
+ * that of a variant is <code>handset</code> or <code>tablet</code>. Every section with a title becomes a header of the 
+ * multi-pane layout. The header shows the section's fragment or, if it has none, a {@link SectionPreferenceFragment}, 
+ * and passes {@link #ARG_MANIFEST}, {@link #ARG_SECTION} and {@link #ARG_HANDSET} to the fragment so it can find the 
+ * variant of its section with {@link #getSection(Context, Bundle)}.
+ * <p>
+ * A manifest is parsed once per process, and the sections for each form factor, with their variants resolved, are 
+ * built as it is parsed, so looking them up afterwards creates no objects. Manifests are immutable and may be used 
+ * from any thread.
+ */
+public final class PreferenceSectionManifest
+{
+    /** Fragment argument holding the resource id of the manifest that describes the fragment's section */
+    public static final String ARG_MANIFEST = "com.tco.preference.manifest";
+    
+    /** Fragment argument holding the index of the fragment's section within its manifest */
+    public static final String ARG_SECTION = "com.tco.preference.section";
+    
+    /** Fragment argument holding true if the fragment's section is shown on a handset, to select its variant */
+    public static final String ARG_HANDSET = "com.tco.preference.handset";
+    
+    /** Form factor flag for sections shown on handsets */
+    public static final int FORM_FACTOR_HANDSET = 1;
+    
+    /** Form factor flag for sections shown on tablets */
+    public static final int FORM_FACTOR_TABLET = 2;
+    
+    /** Form factor flags for sections shown on every device */
+    public static final int FORM_FACTOR_ANY = FORM_FACTOR_HANDSET | FORM_FACTOR_TABLET;
+    
+    private static final String TAG = "PreferenceSectionManifest";
+    
+    /** Name, relative to the application package, of the class generated by the preference compiler */
+    private static final String COMPILED_INDEX = ".CompiledPreferenceIndex";
+    
+    private static final HashMap<Integer, PreferenceSectionManifest> _manifests = new HashMap<Integer, PreferenceSectionManifest>();
+    
+    private final int _resId;
+    private final PreferenceSection[] _sections;
+    private final String[] _fragments;
+    private final int[] _formFactors;
+    private final List<PreferenceSection> _handsetSections;
+    private final List<PreferenceSection> _tabletSections;
+    
+    private PreferenceSectionManifest(int resId, List<PreferenceSection> sections, List<String> fragments, List<Integer> formFactors)
+    {
+        _resId = resId;
+        _sections = sections.toArray(new PreferenceSection[sections.size()]);
+        _fragments = fragments.toArray(new String[fragments.size()]);
+        _formFactors = new int[formFactors.size()];
+        
+        for (int i = 0; i < _formFactors.length; i++)
+            _formFactors[i] = formFactors.get(i).intValue();
+        
+        _handsetSections = select(FORM_FACTOR_HANDSET);
+        _tabletSections = select(FORM_FACTOR_TABLET);
+    }
+    
+    /**
+     * Get a manifest, parsing it if it has not been used before in this process
+     * @param context A context used to read the resource
+     * @param resId The id of a preference-sections XML resource
+     * @return The manifest
+     * @throws IllegalArgumentException if the resource is not a valid section manifest
+     */
+    public static synchronized PreferenceSectionManifest get(Context context, int resId)
+    {
+        Integer key = Integer.valueOf(resId);
+        PreferenceSectionManifest manifest = _manifests.get(key);
+        
+        if (null == manifest)
+        {
+            manifest = parse(context, resId);
+            _manifests.put(key, manifest);
+        }
+        
+        return manifest;
+    }
+    
+    /**
+     * Get the section shown by a fragment created for a header built by {@link #buildHeaders(boolean, List)}
+     * @param context A context used to read the manifest if it has not been parsed yet
+     * @param arguments The fragment's arguments
+     * @return The section, or its variant for the form factor in {@link #ARG_HANDSET} if the arguments give one, or 
+     * null if the arguments do not name a section
+     */
+    public static PreferenceSection getSection(Context context, Bundle arguments)
+    {
+        if (null == arguments || !arguments.containsKey(ARG_MANIFEST))
+            return null;
+        
+        PreferenceSection section = get(context, arguments.getInt(ARG_MANIFEST)).getSection(arguments.getInt(ARG_SECTION));
+        
+        return arguments.containsKey(ARG_HANDSET) ? section.resolve(arguments.getBoolean(ARG_HANDSET)) : section;
+    }
+    
+    /**
+     * Get the sections shown on a form factor, in manifest order
+     * @param handset true for a handset, false for a tablet
+     * @return An unmodifiable list of sections, each replaced by its variant for the form factor if it has one
+     */
+    public List<PreferenceSection> getSections(boolean handset)
+    {
+        return handset ? _handsetSections : _tabletSections;
+    }
+    
+    /**
+     * Get the number of sections in the manifest, for all form factors
+     */
+    public int size()
+    {
+        return _sections.length;
+    }
+    
+    /**
+     * Get a section
+     * @param index The index of the section in the manifest
+     * @return The section as written in the manifest, whose variants can be found with {@link PreferenceSection#resolve(boolean)}
+     */
+    public PreferenceSection getSection(int index)
+    {
+        return _sections[index];
+    }
+    
+    /**
+     * Get the fragment that shows a section in the multi-pane layout
+     * @param index The index of the section in the manifest
+     * @return The class name of the fragment, or null if the section has no header
+     * @see #hasHeader(int)
+     */
+    public String getFragment(int index)
+    {
+        if (null != _fragments[index])
+            return _fragments[index];
+        
+        return hasHeader(index) ? SectionPreferenceFragment.class.getName() : null;
+    }
+    
+    /**
+     * Determine whether a section is a header of the multi-pane layout
+     * @param index The index of the section in the manifest
+     * @return true if the section has a title or a fragment
+     */
+    public boolean hasHeader(int index)
+    {
+        return null != _fragments[index] || PreferenceSection.NO_TITLE != _sections[index].getTitle();
+    }
+    
+    /**
+     * Get the form factors a section is shown on
+     * @param index The index of the section in the manifest
+     * @return A combination of {@link #FORM_FACTOR_HANDSET} and {@link #FORM_FACTOR_TABLET}
+     */
+    public int getFormFactors(int index)
+    {
+        return _formFactors[index];
+    }
+    
+    /**
+     * Add a header for each section with a title or a fragment that is shown on a form factor
+     * @param handset true for a handset, false for a tablet
+     * @param target The list to which new headers are added
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public void buildHeaders(boolean handset, List<Header> target)
+    {
+        int formFactor = handset ? FORM_FACTOR_HANDSET : FORM_FACTOR_TABLET;
+        
+        for (int i = 0; i < _sections.length; i++)
+        {
+            if (!hasHeader(i) || 0 == (_formFactors[i] & formFactor))
+                continue;
+            
+            Header header = new Header();
+            header.id = i;
+            if (PreferenceSection.NO_TITLE != _sections[i].getTitle())
+                header.titleRes = _sections[i].getTitle();
+            header.fragment = getFragment(i);
+            header.fragmentArguments = SectionPreferenceFragment.createArguments(_resId, i, handset);
+            
+            target.add(header);
+        }
+    }
+    
+    private List<PreferenceSection> select(int formFactor)
+    {
+        ArrayList<PreferenceSection> sections = new ArrayList<PreferenceSection>(_sections.length);
+        
+        for (int i = 0; i < _sections.length; i++)
+            if (0 != (_formFactors[i] & formFactor))
+                sections.add(_sections[i].resolve(FORM_FACTOR_HANDSET == formFactor));
+        
+        sections.trimToSize();
+        return Collections.unmodifiableList(sections);
+    }
+    
+    private static PreferenceSectionManifest parse(Context context, int resId)
+    {
+        Resources res = context.getResources();
+        ArrayList<PreferenceSection> sections = new ArrayList<PreferenceSection>();
+        ArrayList<String> fragments = new ArrayList<String>();
+        ArrayList<Integer> formFactors = new ArrayList<Integer>();
+        PreferenceSection.Builder builder = null;
+        
+        /* The builder of the variant being parsed, which receives the bound values until the variant ends */
+        PreferenceSection.Builder variant = null;
+        boolean variantHandset = false;
+        int sectionTitle = PreferenceSection.NO_TITLE;
+        boolean sectionLazy = false;
+        boolean sectionCompiled = false;
+        
+        /* Looked up the first time a section asks for compiled preferences */
+        Method compiledIndex = null;
+        boolean compiledIndexFound = false;
+        
+        XmlResourceParser parser = res.getXml(resId);
+        try
+        {
+            for (int type = parser.getEventType(); XmlPullParser.END_DOCUMENT != type; type = parser.next())
+            {
+                if (XmlPullParser.START_TAG == type && "section".equals(parser.getName()))
+                {
+                    int body = parser.getAttributeResourceValue(null, "preferences", 0);
+                    if (0 == body)
+                        throw new IllegalArgumentException(parser.getPositionDescription() + ": <section> requires a preferences resource");
+                    
+                    sectionTitle = parser.getAttributeResourceValue(null, "title", PreferenceSection.NO_TITLE);
+                    sectionLazy = parser.getAttributeBooleanValue(null, "lazy", false);
+                    sectionCompiled = parser.getAttributeBooleanValue(null, "compiled", false);
+                    builder = PreferenceSection.getBuilder().setTitle(sectionTitle)
+                                                            .setPreference(body)
+                                                            .setLazy(sectionLazy);
+                    if (sectionCompiled)
+                    {
+                        if (!compiledIndexFound)
+                            compiledIndex = findCompiledIndex(context);
+                        compiledIndexFound = true;
+                        builder.setCompiledPreference(getCompiledPreference(compiledIndex, body));
+                    }
+                    fragments.add(parser.getAttributeValue(null, "fragment"));
+                    formFactors.add(Integer.valueOf(parseFormFactor(parser)));
+                }
+                else if (XmlPullParser.START_TAG == type && "variant".equals(parser.getName()))
+                {
+                    if (null == builder || null != variant)
+                        throw new IllegalArgumentException(parser.getPositionDescription() + ": <variant> must be directly inside a <section>");
+                    
+                    int body = parser.getAttributeResourceValue(null, "preferences", 0);
+                    if (0 == body)
+                        throw new IllegalArgumentException(parser.getPositionDescription() + ": <variant> requires a preferences resource");
+                    
+                    int formFactor = parseFormFactor(parser);
+                    if (FORM_FACTOR_ANY == formFactor)
+                        throw new IllegalArgumentException(parser.getPositionDescription() + ": <variant> requires a formFactor of handset or tablet");
+                    
+                    variantHandset = FORM_FACTOR_HANDSET == formFactor;
+                    variant = PreferenceSection.getBuilder().setTitle(parser.getAttributeResourceValue(null, "title", sectionTitle))
+                                                            .setPreference(body)
+                                                            .setLazy(parser.getAttributeBooleanValue(null, "lazy", sectionLazy));
+                    if (parser.getAttributeBooleanValue(null, "compiled", sectionCompiled))
+                    {
+                        if (!compiledIndexFound)
+                            compiledIndex = findCompiledIndex(context);
+                        compiledIndexFound = true;
+                        variant.setCompiledPreference(getCompiledPreference(compiledIndex, body));
+                    }
+                }
+                else if (XmlPullParser.START_TAG == type && "bound-value".equals(parser.getName()))
+                {
+                    if (null == builder)
+                        throw new IllegalArgumentException(parser.getPositionDescription() + ": <bound-value> must be inside a <section>");
+                    
+                    int keyId = parser.getAttributeResourceValue(null, "key", 0);
+                    String key = 0 != keyId ? res.getString(keyId) : parser.getAttributeValue(null, "key");
+                    if (null == key)
+                        throw new IllegalArgumentException(parser.getPositionDescription() + ": <bound-value> requires a key");
+                    
+                    (null == variant ? builder : variant).addBoundValue(key);
+                }
+                else if (XmlPullParser.END_TAG == type && "variant".equals(parser.getName()))
+                {
+                    builder.setVariant(variantHandset, variant.create());
+                    variant = null;
+                }
+                else if (XmlPullParser.END_TAG == type && "section".equals(parser.getName()))
+                {
+                    sections.add(builder.create());
+                    builder = null;
+                }
+            }
+        }
+        catch (XmlPullParserException e)
+        {
+            throw new IllegalArgumentException("Unable to parse section manifest", e);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException("Unable to parse section manifest", e);
+        }
+        finally
+        {
+            parser.close();
+        }
+        
+        return new PreferenceSectionManifest(resId, sections, fragments, formFactors);
+    }
+    
+    /**
+     * Find the <code>get(int)</code> method of the application's generated compiled preference index
+     * @return The method, or null if the application was built without the preference compiler
+     */
+    private static Method findCompiledIndex(Context context)
+    {
+        try
+        {
+            return Class.forName(context.getPackageName() + COMPILED_INDEX).getMethod("get", int.class);
+        }
+        catch (ClassNotFoundException e)
+        {
+            Log.i(TAG, "No compiled preferences, inflating from XML");
+        }
+        catch (NoSuchMethodException e)
+        {
+            Log.w(TAG, "Unexpected compiled preference index, inflating from XML", e);
+        }
+        
+        return null;
+    }
+    
+    private static CompiledPreferences getCompiledPreference(Method compiledIndex, int body)
+    {
+        if (null == compiledIndex)
+            return null;
+        
+        try
+        {
+            return (CompiledPreferences) compiledIndex.invoke(null, Integer.valueOf(body));
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException("Unable to read compiled preferences", e);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw new IllegalStateException("Unable to read compiled preferences", e.getCause());
+        }
+    }
+    
+    private static int parseFormFactor(XmlResourceParser parser)
+    {
+        String formFactor = parser.getAttributeValue(null, "formFactor");
+        
+        if (null == formFactor || "any".equals(formFactor))
+            return FORM_FACTOR_ANY;
+        else if ("handset".equals(formFactor))
+            return FORM_FACTOR_HANDSET;
+        else if ("tablet".equals(formFactor))
+            return FORM_FACTOR_TABLET;
+        
+        throw new IllegalArgumentException(parser.getPositionDescription() + ": unknown formFactor '" + formFactor + "'");
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import android.content.Context;
+import android.media.Ringtone;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.text.TextUtils;
+
+/**
+ * An {@link AsyncSummaryProvider} that shows the title of the ringtone selected in a {@link android.preference.RingtonePreference}
+ * 
+ * {@more}
+ * Ringtone titles are looked up with {@link RingtoneManager}, which queries the media content provider, so they are 
+ * resolved in the background and cached by ringtone {@link Uri}. An empty value corresponds to "Silent" (no ringtone) 
+ * and is summarized immediately with the string resource set by {@link #setSilentSummary(int)}. While a title is 
+ * being resolved the summary shows the string resource set by {@link #setPlaceholderSummary(int)}.
+ */
+public class RingtoneSummaryProvider extends AsyncSummaryProvider
+{
+    private volatile int _idStringSilent = -1;
+    private volatile int _idStringPlaceholder = -1;
+    
+    /**
+     * Construct a {@link RingtoneSummaryProvider} with the default cache size
+     */
+    public RingtoneSummaryProvider()
+    {
+    }
+    
+    /**
+     * Set the string resource used as the summary when "Silent" is selected
+     * @param resId The id of a string resource, or -1 to leave the summary blank
+     */
+    public void setSilentSummary(int resId)
+    {
+        _idStringSilent = resId;
+    }
+    
+    /**
+     * Set the string resource used as the summary while a ringtone title is being resolved
+     * @param resId The id of a string resource, such as "Loading...", or -1 to leave the summary blank
+     */
+    public void setPlaceholderSummary(int resId)
+    {
+        _idStringPlaceholder = resId;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected CharSequence getPlaceholderSummary(Context context, String value)
+    {
+        return -1 == _idStringPlaceholder ? null : context.getString(_idStringPlaceholder);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isImmediate(String value)
+    {
+        return TextUtils.isEmpty(value);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected CharSequence resolveSummary(Context context, String value)
+    {
+        if (TextUtils.isEmpty(value))
+        {
+            /* Empty values correspond to 'silent' (no ringtone). */
+            return -1 == _idStringSilent ? null : context.getString(_idStringSilent);
+        }
+        
+        Ringtone ringtone = RingtoneManager.getRingtone(context, Uri.parse(value));
+        
+        /* Clear the summary if there was a lookup error. */
+        return null == ringtone ? null : ringtone.getTitle(context);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Bundle;
+import android.preference.PreferenceFragment;
+
+/**
+ * A {@link PreferenceFragment} that shows one section of a {@link PreferenceSectionManifest}
+ * 
+ * {@more}
+ * The fragment finds its section from the {@link PreferenceSectionManifest#ARG_MANIFEST} and 
+ * {@link PreferenceSectionManifest#ARG_SECTION} arguments given to it by the headers the manifest builds, adds the 
+ * section's preferences, from its compiled body if it has one, and binds the summaries of the section's bound values 
+ * in the same way as the simple layout of {@link AutoLayoutSettingsActivity}. Sections of a manifest that have a title 
+ * and no fragment of their own are shown by this class, so no per-section fragment classes are needed.
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+public class SectionPreferenceFragment extends PreferenceFragment
+{
+    private PreferenceSection _section;
+    
+    /**
+     * Create the arguments that select a section as it is written in the manifest
+     * @param manifest The resource id of the section manifest
+     * @param section The index of the section in the manifest
+     */
+    public static Bundle createArguments(int manifest, int section)
+    {
+        Bundle arguments = new Bundle();
+        arguments.putInt(PreferenceSectionManifest.ARG_MANIFEST, manifest);
+        arguments.putInt(PreferenceSectionManifest.ARG_SECTION, section);
+        
+        return arguments;
+    }
+    
+    /**
+     * Create the arguments that select the variant of a section for a form factor
+     * @param manifest The resource id of the section manifest
+     * @param section The index of the section in the manifest
+     * @param handset true for a handset, false for a tablet
+     */
+    public static Bundle createArguments(int manifest, int section, boolean handset)
+    {
+        Bundle arguments = createArguments(manifest, section);
+        arguments.putBoolean(PreferenceSectionManifest.ARG_HANDSET, handset);
+        
+        return arguments;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void onCreate(Bundle savedInstanceState)
+    {
+        super.onCreate(savedInstanceState);
+        
+        _section = PreferenceSectionManifest.getSection(getActivity(), getArguments());
+        if (null == _section)
+            throw new IllegalStateException("SectionPreferenceFragment requires the arguments from createArguments()");
+        
+        CompiledPreferences compiled = _section.getCompiledPreference();
+        if (null == compiled)
+        {
+            addPreferencesFromResource(_section.getPref());
+        }
+        else
+        {
+            if (null == getPreferenceScreen())
+                setPreferenceScreen(getPreferenceManager().createPreferenceScreen(getActivity()));
+            
+            compiled.addPreferencesTo(getActivity(), getPreferenceScreen());
+        }
+        
+        AutoLayoutSettingsActivity.bindPreferenceSummariesToValues(getPreferenceScreen(), _section);
+    }
+    
+    /**
+     * Get the section shown by this fragment
+     * @return The section, or null if the fragment has not been created yet
+     */
+    public PreferenceSection getSection()
+    {
+        return _section;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+/**
+ * Receives timing events for the phases of building a settings screen
+ * 
+ * {@more}
+ * A sink installed with {@link AutoLayoutSettingsActivity#setTraceSink(SettingsTraceSink)} is told when each phase of 
+ * building the screen begins and ends. Events are strictly nested and are delivered on the UI thread. Phases that 
+ * concern a single {@link PreferenceSection} or preference are tagged with the section and the preference key; the 
+ * section's title and resource id are available from {@link PreferenceSection#getTitle()} and 
+ * {@link PreferenceSection#getPref()}. When no sink is installed no events are created and no clocks are read.
+ */
+public interface SettingsTraceSink
+{
+    /**
+     * The phases of building a settings screen
+     */
+    public enum Phase
+    {
+        /** {@link AutoLayoutSettingsActivity#onConfigureOptions} */
+        CONFIGURE_OPTIONS,
+        
+        /** Building the whole simple layout */
+        SETUP_SIMPLE_SCREEN,
+        
+        /** {@link AutoLayoutSettingsActivity#onRequestSimplePreferencesConfiguration()} */
+        REQUEST_SECTIONS,
+        
+        /** Adding the category and preferences of one section to the screen */
+        ATTACH_SECTION,
+        
+        /** Inflating the preference body of one section, from XML or compiled code */
+        INFLATE_SECTION,
+        
+        /** Reading a snapshot of the stored preference values, including any wait for the file to finish loading */
+        READ_VALUES,
+        
+        /** Finding the preference for one bound key */
+        FIND_PREFERENCE,
+        
+        /** Binding the summary of one preference to its value */
+        BIND_SUMMARY,
+        
+        /** Building the headers of the multi-pane layout */
+        BUILD_HEADERS,
+        
+        /** Refreshing one shown preference after its value, or a value it depends on, was written */
+        REFRESH_PREFERENCE
+    }
+    
+    /**
+     * Called when a phase begins
+     * @param phase The phase
+     * @param section The section concerned, or null
+     * @param key The preference key concerned, or null
+     */
+    public void onBegin(Phase phase, PreferenceSection section, String key);
+    
+    /**
+     * Called when a phase ends
+     * @param phase The phase
+     * @param section The section concerned, or null
+     * @param key The preference key concerned, or null
+     * @param elapsedNanos The time taken by the phase in nanoseconds, including any nested phases
+     */
+    public void onEnd(Phase phase, PreferenceSection section, String key, long elapsedNanos);
+}
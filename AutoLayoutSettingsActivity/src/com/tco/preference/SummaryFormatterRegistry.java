@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import java.util.HashMap;
+
+import android.preference.Preference;
+
+/**
+ * A set of {@link SummaryFormatter} objects keyed by preference class
+ * 
+ * {@more}
+ * A preference is formatted by the formatter registered for its class or, failing that, for its nearest registered 
+ * superclass. The result of that search is cached per concrete class, so dispatching a summary update is a single 
+ * hash lookup. Preferences with no registered formatter in their hierarchy use the default formatter, which shows 
+ * the value's string representation.
+ */
+public class SummaryFormatterRegistry
+{
+    /** Formatter used when no formatter has been registered for a preference's class or its superclasses */
+    public static final SummaryFormatter DEFAULT_FORMATTER = new SummaryFormatter() {
+            @Override
+            public void applySummary(Preference preference, Object value)
+            {
+                /* Set the summary to the value's simple string representation. */
+                preference.setSummary(SummaryValues.toSummaryText(value));
+            }
+        };
+    
+    private final HashMap<Class<?>, SummaryFormatter> _registered = new HashMap<Class<?>, SummaryFormatter>();
+    private final HashMap<Class<?>, SummaryFormatter> _resolved = new HashMap<Class<?>, SummaryFormatter>();
+    
+    /**
+     * Register a formatter for a preference class and its subclasses
+     * @param type The preference class
+     * @param formatter The formatter, or null to remove the formatter registered for <em>type</em>
+     */
+    public synchronized void register(Class<? extends Preference> type, SummaryFormatter formatter)
+    {
+        if (null == formatter)
+            _registered.remove(type);
+        else
+            _registered.put(type, formatter);
+        
+        _resolved.clear();
+    }
+    
+    /**
+     * Get the formatter for a preference class
+     * @param type The concrete class of a preference
+     * @return The formatter registered for <em>type</em> or its nearest registered superclass, or {@link #DEFAULT_FORMATTER}
+     */
+    public synchronized SummaryFormatter get(Class<? extends Preference> type)
+    {
+        SummaryFormatter formatter = _resolved.get(type);
+        
+        if (null == formatter)
+        {
+            for (Class<?> c = type; null == formatter && null != c; c = c.getSuperclass())
+                formatter = _registered.get(c);
+            
+            if (null == formatter)
+                formatter = DEFAULT_FORMATTER;
+            
+            _resolved.put(type, formatter);
+        }
+        
+        return formatter;
+    }
+    
+    /**
+     * Update the summary of a preference with the formatter for its class
+     * @param preference The preference whose summary is updated
+     * @param value The new value of the preference
+     */
+    public void applySummary(Preference preference, Object value)
+    {
+        get(preference.getClass()).applySummary(preference, value);
+    }
+}
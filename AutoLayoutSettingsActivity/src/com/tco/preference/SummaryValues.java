@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * The rules that turn stored preference values into summary listener values and summary text
+ * 
+ * {@more}
+ * These rules are kept free of Android dependencies so that they can be exercised on a plain JVM.
+ */
+public final class SummaryValues
+{
+    private SummaryValues()
+    {
+    }
+    
+    /**
+     * Convert a stored value to the value passed to the summary listener
+     * 
+     * {@more}
+     * Missing values are treated as empty strings, as they are by 
+     * {@link AutoLayoutSettingsActivity#bindPreferenceSummaryToValue(android.preference.Preference)}; all other values 
+     * keep their stored type, which is the type a preference passes to its change listener.
+     * @param stored A value from <code>SharedPreferences.getAll()</code>, or null if the key is not stored
+     */
+    public static Object toPreferenceValue(Object stored)
+    {
+        return null == stored ? "" : stored;
+    }
+    
+    /**
+     * Convert a preference value to summary text
+     * @param value A preference value
+     * @return The value's string representation, the elements of a collection separated by commas, or null for a null value
+     */
+    public static CharSequence toSummaryText(Object value)
+    {
+        if (!(value instanceof Collection))
+            return null == value ? null : value.toString();
+        
+        StringBuilder out = new StringBuilder();
+        for (Iterator<?> it = ((Collection<?>) value).iterator(); it.hasNext(); )
+        {
+            out.append(it.next());
+            if (it.hasNext())
+                out.append(", ");
+        }
+        
+        return out.toString();
+    }
+}
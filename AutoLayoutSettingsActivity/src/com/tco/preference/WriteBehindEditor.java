@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import android.annotation.TargetApi;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Coalesces rapid changes to preference values into occasional writes
+ * 
+ * {@more}
+ * Each {@link SharedPreferences.Editor#apply()} rewrites the whole preferences file, so a preference whose value 
+ * changes many times a second, such as a slider, can queue a write for every change. A {@link WriteBehindEditor} 
+ * keeps only the latest value of each key and writes every pending value in a single edit once no value has changed 
+ * for the quiet window. A value that keeps changing is still written at least every {@link #MAX_DELAY_WINDOWS} quiet 
+ * windows. Call {@link #flush()} to write pending values immediately, for example when an activity is paused. 
+ * <p>
+ * Values are written with the editor method matching their type; a null value removes the key. Pending values are 
+ * not visible through {@link SharedPreferences} until they are flushed, so readers that need them should use 
+ * {@link #overlay(Map)} or {@link #getPending(String)}. This class must only be used from the UI thread.
+ */
+public class WriteBehindEditor
+{
+    /** Default quiet window, in milliseconds */
+    public static final long DEFAULT_QUIET_WINDOW = 500;
+    
+    /** The longest a value waits to be written, in multiples of the quiet window */
+    public static final int MAX_DELAY_WINDOWS = 4;
+    
+    private final SharedPreferences _preferences;
+    private final Handler _handler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<String, Object> _pending = new LinkedHashMap<String, Object>();
+    private long _quietWindow;
+    private long _firstPendingTime;
+    
+    private final Runnable _flush = new Runnable() {
+            @Override
+            public void run()
+            {
+                flush();
+            }
+        };
+    
+    /**
+     * Construct a {@link WriteBehindEditor} with a quiet window of {@link #DEFAULT_QUIET_WINDOW}
+     * @param preferences The preferences written to
+     */
+    public WriteBehindEditor(SharedPreferences preferences)
+    {
+        this(preferences, DEFAULT_QUIET_WINDOW);
+    }
+    
+    /**
+     * Construct a {@link WriteBehindEditor}
+     * @param preferences The preferences written to
+     * @param quietWindow How long values must stay unchanged before they are written, in milliseconds
+     */
+    public WriteBehindEditor(SharedPreferences preferences, long quietWindow)
+    {
+        _preferences = preferences;
+        _quietWindow = quietWindow;
+    }
+    
+    /**
+     * Set how long values must stay unchanged before they are written
+     * @param quietWindow The quiet window in milliseconds. Zero writes each value as soon as the UI thread is idle.
+     */
+    public void setQuietWindow(long quietWindow)
+    {
+        _quietWindow = quietWindow;
+    }
+    
+    /**
+     * Queue a value to be written
+     * @param key The preference key
+     * @param value The new value, or null to remove the key
+     */
+    public void put(String key, Object value)
+    {
+        long now = SystemClock.uptimeMillis();
+        
+        if (_pending.isEmpty())
+            _firstPendingTime = now;
+        
+        _pending.put(key, value);
+        
+        /* Restart the quiet window, but never past the longest allowed delay of the oldest pending value */
+        long deadline = Math.min(now + _quietWindow, _firstPendingTime + MAX_DELAY_WINDOWS * _quietWindow);
+        _handler.removeCallbacks(_flush);
+        _handler.postAtTime(_flush, deadline);
+    }
+    
+    /**
+     * Determine whether a key has a value waiting to be written
+     */
+    public boolean isPending(String key)
+    {
+        return _pending.containsKey(key);
+    }
+    
+    /**
+     * Get the value waiting to be written for a key
+     * @return The pending value, or null if there is none or the key is to be removed
+     * @see #isPending(String)
+     */
+    public Object getPending(String key)
+    {
+        return _pending.get(key);
+    }
+    
+    /**
+     * Apply the pending values to a snapshot of stored values
+     * @param values Values read from the preferences, such as the result of {@link SharedPreferences#getAll()}
+     * @return <em>values</em> itself if nothing is pending, otherwise a copy with the pending values applied
+     */
+    public Map<String, ?> overlay(Map<String, ?> values)
+    {
+        if (_pending.isEmpty())
+            return values;
+        
+        HashMap<String, Object> merged = new HashMap<String, Object>(values);
+        for (Map.Entry<String, Object> pending : _pending.entrySet())
+        {
+            if (null == pending.getValue())
+                merged.remove(pending.getKey());
+            else
+                merged.put(pending.getKey(), pending.getValue());
+        }
+        
+        return merged;
+    }
+    
+    /**
+     * Write every pending value now, in a single edit
+     */
+    @SuppressWarnings("unchecked")
+    public void flush()
+    {
+        _handler.removeCallbacks(_flush);
+        if (_pending.isEmpty())
+            return;
+        
+        SharedPreferences.Editor editor = _preferences.edit();
+        
+        for (Map.Entry<String, Object> pending : _pending.entrySet())
+        {
+            String key = pending.getKey();
+            Object value = pending.getValue();
+            
+            if (null == value)
+                editor.remove(key);
+            else if (value instanceof Boolean)
+                editor.putBoolean(key, ((Boolean) value).booleanValue());
+            else if (value instanceof Integer)
+                editor.putInt(key, ((Integer) value).intValue());
+            else if (value instanceof Long)
+                editor.putLong(key, ((Long) value).longValue());
+            else if (value instanceof Float)
+                editor.putFloat(key, ((Float) value).floatValue());
+            else if (value instanceof Set)
+                putStringSet(editor, key, (Set<String>) value);
+            else
+                editor.putString(key, value.toString());
+        }
+        
+        _pending.clear();
+        editor.apply();
+    }
+    
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void putStringSet(SharedPreferences.Editor editor, String key, Set<String> value)
+    {
+        editor.putStringSet(key, value);
+    }
+}
@@ -23,29 +23,63 @@
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  * 
  */
-
-
 package com.tco.utils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.os.Build;
 import android.util.Log;
 
+/**
+ * Determines the form factor of the device's screen
+ * 
+ * {@more}
+ * The current {@link FormFactor} is published through a volatile reference, so once {@link #initialize(Context)} 
+ * has been called it can be read with {@link #getFormFactor()} from any thread without a {@link Context}. The 
+ * snapshot follows the application's configuration only. An activity whose own configuration can differ from the 
+ * application's, as it can in multi-window mode, gets its own form factor from {@link #resolve(Context, Configuration)}, 
+ * which does not change the snapshot. Components that adapt to the 
+ * size class can register an {@link OnFormFactorChangeListener} rather than polling after each configuration change.
+ */
 public class FormFactorResolver
 {
     /* Class data members */
-    private static final int UNDEFINED = -1;
     private static final String TAG = FormFactorResolver.class.getSimpleName();
     
-    /* Initially set as undefined */
-    private static int _screenLayoutSize = UNDEFINED;
+    /* Null until initialized */
+    private static volatile FormFactor _formFactor;
+    
+    /* Whether the configuration callback has been registered, guarded by the class lock */
+    private static boolean _registered;
+    
+    /* Weakly held, so that a listener does not keep its activity alive. Guarded by the class lock */
+    private static final WeakHashMap<OnFormFactorChangeListener, Boolean> _listeners = new WeakHashMap<OnFormFactorChangeListener, Boolean>();
+    
+    /**
+     * Notified when the screen size class changes
+     */
+    public interface OnFormFactorChangeListener
+    {
+        /**
+         * Called on the thread that published the new form factor, which is the UI thread for configuration changes
+         * @param oldFormFactor The previous form factor
+         * @param newFormFactor The current form factor, whose size class differs from that of <em>oldFormFactor</em>
+         */
+        public void onFormFactorChanged(FormFactor oldFormFactor, FormFactor newFormFactor);
+    }
 
     /**
      * Determine whether or not this device is likely to have the form factor of a phone 
      */
     public static boolean isHandsetFormFactor(Context context)
     {
-        return getScreenLayoutSize(context) < Configuration.SCREENLAYOUT_SIZE_LARGE;
+        return getFormFactor(context).isHandset();
     }
     
     /**
@@ -53,7 +87,7 @@ public class FormFactorResolver
      */
     public static boolean isTabletFormFactor(Context context)
     {
-        return (isMediumTabletFormFactor(context) || isLargeTabletFormFactor(context));
+        return getFormFactor(context).isTablet();
     }
 
     /**
@@ -61,7 +95,7 @@ public class FormFactorResolver
      */
     public static boolean isMediumTabletFormFactor(Context context)
     {
-        return getScreenLayoutSize(context) >= Configuration.SCREENLAYOUT_SIZE_LARGE && getScreenLayoutSize(context) < Configuration.SCREENLAYOUT_SIZE_XLARGE;
+        return getFormFactor(context).isMediumTablet();
     }
     
     /**
@@ -69,46 +103,164 @@ public class FormFactorResolver
      */
     public static boolean isLargeTabletFormFactor(Context context)
     {
-        return getScreenLayoutSize(context) >= Configuration.SCREENLAYOUT_SIZE_XLARGE;
+        return getFormFactor(context).isLargeTablet();
     }
     
     /**
-     * Dump the detected form factor to logcat
+     * Get the current form factor, initializing the resolver if necessary
      */
-    public static void dump(Context context)
+    public static FormFactor getFormFactor(Context context)
     {
-        String layoutSize;
-        
-        switch (getScreenLayoutSize(context))
+        FormFactor formFactor = _formFactor;
+        if (null == formFactor)
         {
-            case Configuration.SCREENLAYOUT_SIZE_SMALL :
-                layoutSize = "SCREENLAYOUT_SIZE_SMALL";
-                break;
-            case Configuration.SCREENLAYOUT_SIZE_NORMAL :
-                layoutSize = "SCREENLAYOUT_SIZE_NORMAL";
-                break;
-            case Configuration.SCREENLAYOUT_SIZE_LARGE :
-                layoutSize = "SCREENLAYOUT_SIZE_LARGE";
-                break;
-            case Configuration.SCREENLAYOUT_SIZE_XLARGE :
-                layoutSize = "SCREENLAYOUT_SIZE_XLARGE";
-                break;
-            default :
-                layoutSize = "UNKNOWN";
+            initialize(context);
+            formFactor = _formFactor;
         }
         
-        Log.i(TAG, "Current screen layout size is " + layoutSize);
+        return formFactor;
+    }
+    
+    /**
+     * Get the current form factor from any thread
+     * @throws IllegalStateException if {@link #initialize(Context)} has not been called
+     */
+    public static FormFactor getFormFactor()
+    {
+        FormFactor formFactor = _formFactor;
+        if (null == formFactor)
+            throw new IllegalStateException("FormFactorResolver.initialize(Context) has not been called");
+        
+        return formFactor;
+    }
+    
+    /**
+     * Resolve the form factor and keep it up to date with the application's configuration
+     * 
+     * {@more}
+     * Call this once, for example in {@link android.app.Application#onCreate()}, before the form factor is read 
+     * from a background thread. Later calls have no effect.
+     */
+    public static synchronized void initialize(Context context)
+    {
+        if (_registered)
+            return;
+        
+        final Context application = context.getApplicationContext();
+        update(application, application.getResources().getConfiguration());
+        
+        application.registerComponentCallbacks(new ComponentCallbacks() {
+                @Override
+                public void onConfigurationChanged(Configuration newConfig)
+                {
+                    update(application, newConfig);
+                }
+                
+                @Override
+                public void onLowMemory()
+                {
+                }
+            });
+        _registered = true;
+    }
+    
+    /**
+     * Register a listener for changes to the screen size class, initializing the resolver if necessary
+     * 
+     * {@more}
+     * Listeners are held weakly, so the caller must keep a reference to <em>listener</em> for as long as it should 
+     * be notified, for example in a field of the activity that registered it. A listener is only notified when the 
+     * size class changes, not when only the orientation or another property of the {@link FormFactor} changes.
+     */
+    public static void addOnFormFactorChangeListener(Context context, OnFormFactorChangeListener listener)
+    {
+        initialize(context);
+        
+        synchronized (FormFactorResolver.class)
+        {
+            _listeners.put(listener, Boolean.TRUE);
+        }
+    }
+    
+    /**
+     * Unregister a listener
+     */
+    public static synchronized void removeOnFormFactorChangeListener(OnFormFactorChangeListener listener)
+    {
+        _listeners.remove(listener);
     }
     
+    /**
+     * Determine the form factor of a configuration without publishing it
+     * 
+     * {@more}
+     * Use this for the configuration of an activity, for example in <code>onConfigurationChanged</code>. The 
+     * snapshot returned by {@link #getFormFactor()} and the listeners only follow the application's configuration.
+     * @param context A context whose resources match <em>config</em>, used for the density before API 17
+     * @param config The configuration
+     */
+    public static FormFactor resolve(Context context, Configuration config)
+    {
+        return new FormFactor(config, getDensityDpi(context, config));
+    }
     
-    private static int getScreenLayoutSize(Context context)
+    /**
+     * Publish the form factor of the application's configuration
+     * 
+     * {@more}
+     * The current snapshot is only replaced if the configuration describes a different form factor. If its size 
+     * class has changed, each registered listener is notified once, after the new snapshot has been published.
+     * @param application The application context
+     * @param config The application's configuration
+     * @return The current form factor
+     */
+    private static FormFactor update(Context application, Configuration config)
     {
-        if (UNDEFINED == _screenLayoutSize)
+        FormFactor formFactor = resolve(application, config);
+        FormFactor previous;
+        List<OnFormFactorChangeListener> listeners;
+        
+        synchronized (FormFactorResolver.class)
         {
-            _screenLayoutSize = context.getResources().getConfiguration().screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK;
+            previous = _formFactor;
+            if (formFactor.equals(previous))
+                return previous;
+            
+            _formFactor = formFactor;
+            if (null == previous || previous.getSizeClass() == formFactor.getSizeClass() || _listeners.isEmpty())
+                return formFactor;
+            
+            listeners = new ArrayList<OnFormFactorChangeListener>(_listeners.keySet());
         }
         
-        return _screenLayoutSize;
+        /* Outside the lock, so that a listener can read the form factor or unregister itself */
+        for (OnFormFactorChangeListener listener : listeners)
+            listener.onFormFactorChanged(previous, formFactor);
+        
+        return formFactor;
+    }
+    
+    /**
+     * Dump the detected form factor to logcat
+     */
+    public static void dump(Context context)
+    {
+        Log.i(TAG, "Current screen layout size is SCREENLAYOUT_SIZE_" + getFormFactor(context).getSizeClass() + ", " + getFormFactor(context));
+    }
+    
+    
+    private static int getDensityDpi(Context context, Configuration config)
+    {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1)
+            return getConfigurationDensityDpi(config);
+        
+        return context.getResources().getDisplayMetrics().densityDpi;
+    }
+    
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static int getConfigurationDensityDpi(Configuration config)
+    {
+        return config.densityDpi;
     }
 
 }
@@ -0,0 +1,713 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Build-time compiler that translates preference XML resources into Java code
+ * 
+ * {@more}
+ * Each <code>res/xml/pref_*.xml</code> resource whose root element is a <code>PreferenceScreen</code> is translated 
+ * into a <code>com.tco.preference.CompiledPreferences</code> that creates the preference objects directly. All of the 
+ * compiled bodies are written to a single <code>CompiledPreferenceIndex</code> class in the application package, 
+ * whose <code>get(int)</code> method returns the compiled body for an XML resource id, or null if that resource 
+ * could not be compiled. Resources that use elements or attributes the compiler does not understand are skipped 
+ * with a warning and continue to be inflated from XML at runtime. The build fails if a qualified directory such as 
+ * <code>res/xml-sw600dp</code> holds <code>pref_*.xml</code> resources, since the index cannot choose between 
+ * configurations.
+ * <p>
+ * Usage: <code>java com.tco.tools.PreferenceCompiler &lt;project-dir&gt; [&lt;output-dir&gt;]</code>
+ * <p>
+ * The application package is read from the project's <code>AndroidManifest.xml</code> and the output directory 
+ * defaults to the project's <code>gen</code> directory. The Ant build runs this tool from <code>custom_rules.xml</code> 
+ * when the <code>prefc.enabled</code> property is set.
+ */
+public class PreferenceCompiler
+{
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    private static final String INDEX_CLASS = "CompiledPreferenceIndex";
+    private static final String FILE_PREFIX = "pref_";
+    private static final String INDENT = "    ";
+
+    /** Preference classes that can be created directly, mapped to their simple names */
+    private static final Map<String, String> PREFERENCE_CLASSES = new HashMap<String, String>();
+    
+    /** Input type flag names, mapped to their <code>InputType</code> expressions */
+    private static final Map<String, String> INPUT_TYPES = new HashMap<String, String>();
+    
+    /** Ringtone type names, mapped to their <code>RingtoneManager</code> constants */
+    private static final Map<String, String> RINGTONE_TYPES = new HashMap<String, String>();
+    
+    /** Attributes understood on every preference */
+    private static final Set<String> PREFERENCE_ATTRS = new HashSet<String>(Arrays.asList(
+        "key", "title", "summary", "defaultValue", "dependency", "enabled", "selectable", "persistent", 
+        "order", "icon", "fragment", "layout", "widgetLayout", "shouldDisableView"));
+    
+    private static final Set<String> TWO_STATE_ATTRS = new HashSet<String>(Arrays.asList(
+        "summaryOn", "summaryOff", "disableDependentsState"));
+    
+    private static final Set<String> DIALOG_ATTRS = new HashSet<String>(Arrays.asList(
+        "dialogTitle", "dialogMessage", "dialogIcon", "dialogLayout", "positiveButtonText", "negativeButtonText"));
+    
+    private static final Set<String> LIST_ATTRS = new HashSet<String>(Arrays.asList("entries", "entryValues"));
+    
+    private static final Set<String> EDIT_TEXT_ATTRS = new HashSet<String>(Arrays.asList(
+        "inputType", "capitalize", "maxLines", "singleLine", "selectAllOnFocus", "hint"));
+    
+    private static final Set<String> RINGTONE_ATTRS = new HashSet<String>(Arrays.asList(
+        "ringtoneType", "showDefault", "showSilent"));
+    
+    static
+    {
+        for (String name : new String[] { "Preference", "PreferenceCategory", "CheckBoxPreference", "SwitchPreference", 
+                                          "EditTextPreference", "ListPreference", "MultiSelectListPreference", 
+                                          "RingtonePreference" })
+        {
+            PREFERENCE_CLASSES.put(name, name);
+            PREFERENCE_CLASSES.put("android.preference." + name, name);
+        }
+        
+        INPUT_TYPES.put("none", "InputType.TYPE_NULL");
+        INPUT_TYPES.put("text", "InputType.TYPE_CLASS_TEXT");
+        INPUT_TYPES.put("textCapCharacters", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS");
+        INPUT_TYPES.put("textCapWords", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_WORDS");
+        INPUT_TYPES.put("textCapSentences", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES");
+        INPUT_TYPES.put("textAutoCorrect", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_AUTO_CORRECT");
+        INPUT_TYPES.put("textMultiLine", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_MULTI_LINE");
+        INPUT_TYPES.put("textNoSuggestions", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS");
+        INPUT_TYPES.put("textUri", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_URI");
+        INPUT_TYPES.put("textEmailAddress", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS");
+        INPUT_TYPES.put("textPersonName", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PERSON_NAME");
+        INPUT_TYPES.put("textPassword", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD");
+        INPUT_TYPES.put("textVisiblePassword", "InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD");
+        INPUT_TYPES.put("number", "InputType.TYPE_CLASS_NUMBER");
+        INPUT_TYPES.put("numberSigned", "InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_SIGNED");
+        INPUT_TYPES.put("numberDecimal", "InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL");
+        INPUT_TYPES.put("numberPassword", "InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_VARIATION_PASSWORD");
+        INPUT_TYPES.put("phone", "InputType.TYPE_CLASS_PHONE");
+        
+        RINGTONE_TYPES.put("ringtone", "RingtoneManager.TYPE_RINGTONE");
+        RINGTONE_TYPES.put("notification", "RingtoneManager.TYPE_NOTIFICATION");
+        RINGTONE_TYPES.put("alarm", "RingtoneManager.TYPE_ALARM");
+        RINGTONE_TYPES.put("all", "RingtoneManager.TYPE_ALL");
+    }
+    
+    /**
+     * Thrown when a resource uses a construct that cannot be compiled
+     */
+    static class UnsupportedPreferenceException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedPreferenceException(String message)
+        {
+            super(message);
+        }
+    }
+    
+    /**
+     * Entry point
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 1 || args.length > 2)
+        {
+            System.err.println("Usage: PreferenceCompiler <project-dir> [<output-dir>]");
+            System.exit(1);
+        }
+        
+        File projectDir = new File(args[0]);
+        File outputDir = args.length > 1 ? new File(args[1]) : new File(projectDir, "gen");
+        
+        String pkg = readPackage(new File(projectDir, "AndroidManifest.xml"));
+        checkNoQualifiedVariants(new File(projectDir, "res"));
+        new PreferenceCompiler(pkg).compile(new File(projectDir, "res/xml"), outputDir);
+    }
+    
+    /**
+     * Fail if any qualified <code>xml-*</code> resource directory holds <code>pref_*.xml</code> files
+     * 
+     * {@more}
+     * The generated index maps each resource id to a single compiled body, but a qualified variant is chosen by the 
+     * device configuration at runtime, so compiling only <code>res/xml</code> would silently show the unqualified 
+     * preferences on every device.
+     */
+    static void checkNoQualifiedVariants(File resDir) throws IOException
+    {
+        File[] dirs = resDir.listFiles();
+        if (null == dirs)
+            return;
+        
+        List<String> variants = new ArrayList<String>();
+        for (File dir : dirs)
+        {
+            if (!dir.isDirectory() || !dir.getName().startsWith("xml-"))
+                continue;
+            
+            File[] files = dir.listFiles();
+            for (File file : null == files ? new File[0] : files)
+                if (file.getName().startsWith(FILE_PREFIX) && file.getName().endsWith(".xml"))
+                    variants.add(dir.getName() + "/" + file.getName());
+        }
+        
+        if (!variants.isEmpty())
+        {
+            Collections.sort(variants);
+            throw new IOException("Qualified preference resources cannot be compiled: " + variants 
+                                  + ". Move them out of the pref_ namespace or build without prefc.enabled");
+        }
+    }
+    
+    private final String _package;
+    private final DocumentBuilder _documentBuilder;
+    
+    /* Per-resource generation state */
+    private StringBuilder _body;
+    private List<String[]> _dependencies;
+    private int _nextVar;
+    
+    /**
+     * Construct a compiler that generates code for the given application package
+     * @param pkg The application package, which is also the package of the generated R class
+     */
+    public PreferenceCompiler(String pkg) throws Exception
+    {
+        _package = pkg;
+        
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setIgnoringComments(true);
+        _documentBuilder = factory.newDocumentBuilder();
+    }
+    
+    /**
+     * Compile every <code>pref_*.xml</code> resource in <em>xmlDir</em> and write the index class to <em>outputDir</em>
+     */
+    public void compile(File xmlDir, File outputDir) throws Exception
+    {
+        File[] files = xmlDir.listFiles();
+        if (null == files)
+            throw new IOException("Not a directory: " + xmlDir);
+        
+        Arrays.sort(files);
+        
+        List<String> compiled = new ArrayList<String>();
+        StringBuilder members = new StringBuilder();
+        
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (!name.startsWith(FILE_PREFIX) || !name.endsWith(".xml"))
+                continue;
+            
+            String resName = name.substring(0, name.length() - ".xml".length());
+            Element root = _documentBuilder.parse(file).getDocumentElement();
+            
+            if (!"PreferenceScreen".equals(root.getTagName()))
+                continue;
+            
+            try
+            {
+                members.append(compileScreen(resName, root));
+                compiled.add(resName);
+            }
+            catch (UnsupportedPreferenceException e)
+            {
+                System.err.println("PreferenceCompiler: " + name + " will be inflated from XML: " + e.getMessage());
+            }
+        }
+        
+        File pkgDir = new File(outputDir, _package.replace('.', File.separatorChar));
+        if (!pkgDir.isDirectory() && !pkgDir.mkdirs())
+            throw new IOException("Unable to create " + pkgDir);
+        
+        Writer out = new OutputStreamWriter(new FileOutputStream(new File(pkgDir, INDEX_CLASS + ".java")), "UTF-8");
+        try
+        {
+            out.write(generateIndex(compiled, members));
+        }
+        finally
+        {
+            out.close();
+        }
+        
+        System.out.println("PreferenceCompiler: compiled " + compiled.size() + " preference resource(s) into " + _package + "." + INDEX_CLASS);
+    }
+    
+    private String generateIndex(List<String> compiled, CharSequence members)
+    {
+        StringBuilder out = new StringBuilder();
+        
+        out.append("/* AUTO-GENERATED FILE. DO NOT MODIFY.\n");
+        out.append(" *\n");
+        out.append(" * This class was automatically generated by PreferenceCompiler from the\n");
+        out.append(" * preference XML resources. It should not be modified by hand.\n");
+        out.append(" */\n\n");
+        out.append("package ").append(_package).append(";\n\n");
+        out.append("import android.content.Context;\n");
+        out.append("import android.content.Intent;\n");
+        out.append("import android.media.RingtoneManager;\n");
+        out.append("import android.preference.*;\n");
+        out.append("import android.text.InputType;\n\n");
+        out.append("import com.tco.preference.CompiledPreferences;\n\n");
+        out.append("@SuppressWarnings(\"deprecation\")\n");
+        out.append("public final class ").append(INDEX_CLASS).append("\n{\n");
+        out.append(INDENT).append("private ").append(INDEX_CLASS).append("()\n").append(INDENT).append("{\n").append(INDENT).append("}\n\n");
+        
+        out.append(INDENT).append("/**\n");
+        out.append(INDENT).append(" * Get the compiled preferences for an XML resource\n");
+        out.append(INDENT).append(" * @return the compiled preferences, or null if the resource must be inflated from XML\n");
+        out.append(INDENT).append(" */\n");
+        out.append(INDENT).append("public static CompiledPreferences get(int resId)\n").append(INDENT).append("{\n");
+        for (String resName : compiled)
+        {
+            out.append(INDENT).append(INDENT).append("if (R.xml.").append(resName).append(" == resId)\n");
+            out.append(INDENT).append(INDENT).append(INDENT).append("return ").append(constantName(resName)).append(";\n");
+        }
+        out.append(INDENT).append(INDENT).append("return null;\n");
+        out.append(INDENT).append("}\n");
+        out.append(members);
+        out.append("}\n");
+        
+        return out.toString();
+    }
+    
+    private String compileScreen(String resName, Element root) throws UnsupportedPreferenceException
+    {
+        _body = new StringBuilder();
+        _dependencies = new ArrayList<String[]>();
+        _nextVar = 0;
+        
+        for (String attr : attributeNames(root))
+            throw new UnsupportedPreferenceException("attribute '" + attr + "' on the root PreferenceScreen");
+        
+        compileChildren(root, "root", 4);
+        
+        /* Dependencies can only be resolved once every preference is in the hierarchy */
+        for (String[] dependency : _dependencies)
+            line(4, dependency[0] + ".setDependency(" + dependency[1] + ");");
+        
+        StringBuilder out = new StringBuilder();
+        out.append("\n");
+        out.append(INDENT).append("/** Compiled from res/xml/").append(resName).append(".xml */\n");
+        out.append(INDENT).append("public static final CompiledPreferences ").append(constantName(resName)).append(" = new CompiledPreferences()\n");
+        out.append(INDENT).append(INDENT).append("{\n");
+        out.append(INDENT).append(INDENT).append(INDENT).append("@Override\n");
+        out.append(INDENT).append(INDENT).append(INDENT).append("public void addPreferencesTo(Context context, PreferenceGroup root)\n");
+        out.append(INDENT).append(INDENT).append(INDENT).append("{\n");
+        out.append(_body);
+        out.append(INDENT).append(INDENT).append(INDENT).append("}\n");
+        out.append(INDENT).append(INDENT).append("};\n");
+        
+        return out.toString();
+    }
+    
+    private void compileChildren(Element parent, String parentVar, int depth) throws UnsupportedPreferenceException
+    {
+        NodeList children = parent.getChildNodes();
+        
+        for (int i = 0; i < children.getLength(); i++)
+        {
+            Node child = children.item(i);
+            if (Node.ELEMENT_NODE == child.getNodeType())
+                compilePreference((Element) child, parentVar, depth);
+        }
+    }
+    
+    private void compilePreference(Element element, String parentVar, int depth) throws UnsupportedPreferenceException
+    {
+        String type = PREFERENCE_CLASSES.get(element.getTagName());
+        if (null == type)
+            throw new UnsupportedPreferenceException("element <" + element.getTagName() + ">");
+        
+        boolean twoState = "CheckBoxPreference".equals(type) || "SwitchPreference".equals(type);
+        boolean list = "ListPreference".equals(type) || "MultiSelectListPreference".equals(type);
+        boolean editText = "EditTextPreference".equals(type);
+        boolean ringtone = "RingtonePreference".equals(type);
+        boolean dialog = list || editText;
+        
+        String var = "p" + _nextVar++;
+        line(depth, type + " " + var + " = new " + type + "(context);");
+        
+        for (String attr : attributeNames(element))
+        {
+            String value = element.getAttributeNS(ANDROID_NS, attr);
+            
+            if (PREFERENCE_ATTRS.contains(attr))
+                compilePreferenceAttribute(var, type, twoState, attr, value, depth);
+            else if (twoState && TWO_STATE_ATTRS.contains(attr))
+                compileTwoStateAttribute(var, attr, value, depth);
+            else if (dialog && DIALOG_ATTRS.contains(attr))
+                compileDialogAttribute(var, attr, value, depth);
+            else if (list && LIST_ATTRS.contains(attr))
+                line(depth, var + ".set" + capitalize(attr) + "(" + resource(value, "array") + ");");
+            else if (editText && EDIT_TEXT_ATTRS.contains(attr))
+                compileEditTextAttribute(element, var, attr, value, depth);
+            else if (ringtone && RINGTONE_ATTRS.contains(attr))
+                compileRingtoneAttribute(var, attr, value, depth);
+            else
+                throw new UnsupportedPreferenceException("attribute '" + attr + "' on <" + element.getTagName() + ">");
+        }
+        
+        /* DialogPreference falls back to the title only when inflated from XML */
+        if (dialog && !element.hasAttributeNS(ANDROID_NS, "dialogTitle") && element.hasAttributeNS(ANDROID_NS, "title"))
+            line(depth, var + ".setDialogTitle(" + text(element.getAttributeNS(ANDROID_NS, "title")) + ");");
+        
+        line(depth, parentVar + ".addPreference(" + var + ");");
+        
+        if ("PreferenceCategory".equals(type))
+        {
+            compileChildren(element, var, depth);
+        }
+        else
+        {
+            NodeList children = element.getChildNodes();
+            for (int i = 0; i < children.getLength(); i++)
+            {
+                Node child = children.item(i);
+                if (Node.ELEMENT_NODE != child.getNodeType())
+                    continue;
+                
+                if ("intent".equals(((Element) child).getTagName()))
+                    compileIntent((Element) child, var, depth);
+                else
+                    throw new UnsupportedPreferenceException("element <" + ((Element) child).getTagName() + "> inside <" + element.getTagName() + ">");
+            }
+        }
+    }
+    
+    private void compilePreferenceAttribute(String var, String type, boolean twoState, String attr, String value, int depth) throws UnsupportedPreferenceException
+    {
+        if ("key".equals(attr) || "fragment".equals(attr))
+            line(depth, var + ".set" + capitalize(attr) + "(" + string(value) + ");");
+        else if ("title".equals(attr) || "summary".equals(attr))
+            line(depth, var + ".set" + capitalize(attr) + "(" + text(value) + ");");
+        else if ("dependency".equals(attr))
+            _dependencies.add(new String[] { var, string(value) });
+        else if ("enabled".equals(attr) || "selectable".equals(attr) || "persistent".equals(attr) || "shouldDisableView".equals(attr))
+            line(depth, var + ".set" + capitalize(attr) + "(" + bool(value) + ");");
+        else if ("order".equals(attr))
+            line(depth, var + ".setOrder(" + integer(value) + ");");
+        else if ("icon".equals(attr))
+            line(depth, var + ".setIcon(" + resource(value, "drawable") + ");");
+        else if ("layout".equals(attr))
+            line(depth, var + ".setLayoutResource(" + resource(value, "layout") + ");");
+        else if ("widgetLayout".equals(attr))
+            line(depth, var + ".setWidgetLayoutResource(" + resource(value, "layout") + ");");
+        else if ("defaultValue".equals(attr))
+        {
+            if (twoState)
+                line(depth, var + ".setDefaultValue(" + bool(value) + ");");
+            else if ("MultiSelectListPreference".equals(type) || "PreferenceCategory".equals(type))
+                throw new UnsupportedPreferenceException("defaultValue on <" + type + ">");
+            else
+                line(depth, var + ".setDefaultValue(" + string(value) + ");");
+        }
+    }
+    
+    private void compileTwoStateAttribute(String var, String attr, String value, int depth) throws UnsupportedPreferenceException
+    {
+        if ("disableDependentsState".equals(attr))
+            line(depth, var + ".setDisableDependentsState(" + bool(value) + ");");
+        else
+            line(depth, var + ".set" + capitalize(attr) + "(" + text(value) + ");");
+    }
+    
+    private void compileDialogAttribute(String var, String attr, String value, int depth) throws UnsupportedPreferenceException
+    {
+        if ("dialogIcon".equals(attr))
+            line(depth, var + ".setDialogIcon(" + resource(value, "drawable") + ");");
+        else if ("dialogLayout".equals(attr))
+            line(depth, var + ".setDialogLayoutResource(" + resource(value, "layout") + ");");
+        else
+            line(depth, var + ".set" + capitalize(attr) + "(" + text(value) + ");");
+    }
+    
+    private void compileEditTextAttribute(Element element, String var, String attr, String value, int depth) throws UnsupportedPreferenceException
+    {
+        if ("inputType".equals(attr))
+        {
+            StringBuilder flags = new StringBuilder();
+            for (String flag : value.split("\\|"))
+            {
+                String expression = INPUT_TYPES.get(flag.trim());
+                if (null == expression)
+                    throw new UnsupportedPreferenceException("inputType '" + flag.trim() + "'");
+                
+                if (flags.length() > 0)
+                    flags.append(" | ");
+                flags.append(expression);
+            }
+            line(depth, var + ".getEditText().setInputType(" + flags + ");");
+        }
+        else if ("capitalize".equals(attr))
+        {
+            /* Only meaningful to the framework when no inputType is given */
+            if (!element.hasAttributeNS(ANDROID_NS, "inputType"))
+                throw new UnsupportedPreferenceException("capitalize without inputType");
+        }
+        else if ("maxLines".equals(attr))
+            line(depth, var + ".getEditText().setMaxLines(" + integer(value) + ");");
+        else if ("singleLine".equals(attr))
+            line(depth, var + ".getEditText().setSingleLine(" + bool(value) + ");");
+        else if ("selectAllOnFocus".equals(attr))
+            line(depth, var + ".getEditText().setSelectAllOnFocus(" + bool(value) + ");");
+        else if ("hint".equals(attr))
+            line(depth, var + ".getEditText().setHint(" + text(value) + ");");
+    }
+    
+    private void compileRingtoneAttribute(String var, String attr, String value, int depth) throws UnsupportedPreferenceException
+    {
+        if ("ringtoneType".equals(attr))
+        {
+            String type = RINGTONE_TYPES.get(value);
+            if (null == type)
+                throw new UnsupportedPreferenceException("ringtoneType '" + value + "'");
+            line(depth, var + ".setRingtoneType(" + type + ");");
+        }
+        else
+        {
+            line(depth, var + ".set" + capitalize(attr) + "(" + bool(value) + ");");
+        }
+    }
+    
+    private void compileIntent(Element intent, String var, int depth) throws UnsupportedPreferenceException
+    {
+        String intentVar = var + "Intent";
+        line(depth, "Intent " + intentVar + " = new Intent();");
+        
+        for (String attr : attributeNames(intent))
+        {
+            String value = intent.getAttributeNS(ANDROID_NS, attr);
+            
+            if ("action".equals(attr))
+                line(depth, intentVar + ".setAction(" + literal(value) + ");");
+            else if ("data".equals(attr))
+                line(depth, intentVar + ".setData(android.net.Uri.parse(" + literal(value) + "));");
+            else if ("mimeType".equals(attr))
+                line(depth, intentVar + ".setType(" + literal(value) + ");");
+            else if ("targetClass".equals(attr) && intent.hasAttributeNS(ANDROID_NS, "targetPackage"))
+                line(depth, intentVar + ".setClassName(" + literal(intent.getAttributeNS(ANDROID_NS, "targetPackage")) + ", " + literal(value) + ");");
+            else if (!"targetPackage".equals(attr) || !intent.hasAttributeNS(ANDROID_NS, "targetClass"))
+                throw new UnsupportedPreferenceException("attribute '" + attr + "' on <intent>");
+        }
+        
+        if (intent.hasChildNodes() && intent.getElementsByTagName("*").getLength() > 0)
+            throw new UnsupportedPreferenceException("child elements of <intent>");
+        
+        line(depth, var + ".setIntent(" + intentVar + ");");
+    }
+    
+    /**
+     * Names of the android: attributes of an element, in document order. Attributes in any other namespace are not supported.
+     */
+    private static List<String> attributeNames(Element element) throws UnsupportedPreferenceException
+    {
+        List<String> names = new ArrayList<String>();
+        NamedNodeMap attrs = element.getAttributes();
+        
+        for (int i = 0; i < attrs.getLength(); i++)
+        {
+            Attr attr = (Attr) attrs.item(i);
+            
+            if ("http://www.w3.org/2000/xmlns/".equals(attr.getNamespaceURI()))
+                continue;
+            if (!ANDROID_NS.equals(attr.getNamespaceURI()))
+                throw new UnsupportedPreferenceException("attribute '" + attr.getName() + "' on <" + element.getTagName() + ">");
+            
+            names.add(attr.getLocalName());
+        }
+        
+        return names;
+    }
+    
+    /** An expression for a CharSequence attribute, which may be passed either as a string resource id or as text */
+    private static String text(String value) throws UnsupportedPreferenceException
+    {
+        if ("@null".equals(value))
+            return "(CharSequence) null";
+        if (value.startsWith("@"))
+            return resource(value, "string");
+        
+        return literal(value);
+    }
+    
+    /** An expression for a String attribute */
+    private static String string(String value) throws UnsupportedPreferenceException
+    {
+        if ("@null".equals(value))
+            return "(String) null";
+        if (value.startsWith("@"))
+            return "context.getString(" + resource(value, "string") + ")";
+        
+        return literal(value);
+    }
+    
+    private static String bool(String value) throws UnsupportedPreferenceException
+    {
+        if (value.startsWith("@"))
+            return "context.getResources().getBoolean(" + resource(value, "bool") + ")";
+        if (!"true".equals(value) && !"false".equals(value))
+            throw new UnsupportedPreferenceException("boolean value '" + value + "'");
+        
+        return value;
+    }
+    
+    private static String integer(String value) throws UnsupportedPreferenceException
+    {
+        if (value.startsWith("@"))
+            return "context.getResources().getInteger(" + resource(value, "integer") + ")";
+        
+        try
+        {
+            return Integer.toString(Integer.parseInt(value));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new UnsupportedPreferenceException("integer value '" + value + "'");
+        }
+    }
+    
+    /** Translates an <code>@[android:]type/name</code> reference into an R field */
+    private static String resource(String value, String expectedType) throws UnsupportedPreferenceException
+    {
+        if (!value.startsWith("@") || value.startsWith("@+") || value.indexOf('/') < 0)
+            throw new UnsupportedPreferenceException("expected a @" + expectedType + " reference but found '" + value + "'");
+        
+        String ref = value.substring(1);
+        String rClass = "R";
+        
+        if (ref.startsWith("android:"))
+        {
+            rClass = "android.R";
+            ref = ref.substring("android:".length());
+        }
+        
+        String type = ref.substring(0, ref.indexOf('/'));
+        String name = ref.substring(ref.indexOf('/') + 1);
+        
+        if (!type.equals(expectedType))
+            throw new UnsupportedPreferenceException("expected a @" + expectedType + " reference but found '" + value + "'");
+        
+        return rClass + "." + type + "." + name.replace('.', '_');
+    }
+    
+    /** A Java string literal for an XML attribute value, applying the escapes aapt applies */
+    private static String literal(String value) throws UnsupportedPreferenceException
+    {
+        if (value.startsWith("?"))
+            throw new UnsupportedPreferenceException("theme attribute reference '" + value + "'");
+        
+        StringBuilder out = new StringBuilder("\"");
+        
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            
+            if ('\\' == c && i + 1 < value.length())
+            {
+                char next = value.charAt(++i);
+                switch (next)
+                {
+                    case 'n' : out.append("\\n"); break;
+                    case 't' : out.append("\\t"); break;
+                    case '\\' : out.append("\\\\"); break;
+                    default : out.append(next == '"' ? "\\\"" : String.valueOf(next));
+                }
+            }
+            else if ('"' == c)
+            {
+                /* Unescaped quotes only delimit text in aapt */
+            }
+            else if (c < 0x20 || c > 0x7e)
+            {
+                out.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                out.append(c);
+            }
+        }
+        
+        return out.append('"').toString();
+    }
+    
+    private static String capitalize(String name)
+    {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+    
+    private static String constantName(String resName)
+    {
+        return resName.toUpperCase();
+    }
+    
+    private void line(int depth, String code)
+    {
+        for (int i = 0; i < depth; i++)
+            _body.append(INDENT);
+        
+        _body.append(code).append('\n');
+    }
+    
+    private static String readPackage(File manifest) throws Exception
+    {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        Document document = factory.newDocumentBuilder().parse(manifest);
+        
+        String pkg = document.getDocumentElement().getAttribute("package");
+        if (0 == pkg.length())
+            throw new IOException("No package declared in " + manifest);
+        
+        return pkg;
+    }
+}
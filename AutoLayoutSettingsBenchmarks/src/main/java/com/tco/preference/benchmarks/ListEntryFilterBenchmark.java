@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tco.preference.ListEntryFilter;
+
+/**
+ * Measures typing a query into the filter of a large list, one character at a time, against searching every entry 
+ * for each prefix of the query. Both fold the entries to lower case once, outside the measurement, so only the 
+ * searching is compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListEntryFilterBenchmark
+{
+    private static final String QUERY = "america/new";
+    
+    @Param({ "500", "5000" })
+    public int entries;
+    
+    private CharSequence[] _entries;
+    private String[] _folded;
+    private ListEntryFilter _filter;
+    
+    @Setup
+    public void setup()
+    {
+        String[] regions = { "Africa", "America", "Antarctica", "Asia", "Atlantic", "Australia", "Europe", "Indian", "Pacific" };
+        
+        _entries = new CharSequence[entries];
+        for (int i = 0; i < entries; i++)
+            _entries[i] = regions[i % regions.length] + "/" + (i % 7 == 0 ? "New_City_" : "City_") + i;
+        
+        _folded = new String[entries];
+        for (int i = 0; i < entries; i++)
+            _folded[i] = _entries[i].toString().toLowerCase(Locale.ROOT);
+        
+        _filter = new ListEntryFilter(_entries, Locale.ROOT);
+    }
+    
+    @Benchmark
+    public int typeQueryIncrementally()
+    {
+        _filter.setQuery(null);
+        for (int i = 1; i <= QUERY.length(); i++)
+            _filter.setQuery(QUERY.substring(0, i));
+        
+        return _filter.getCount();
+    }
+    
+    @Benchmark
+    public int typeQueryFullScan()
+    {
+        int count = 0;
+        for (int i = 1; i <= QUERY.length(); i++)
+        {
+            String query = QUERY.substring(0, i);
+            count = 0;
+            
+            for (String entry : _folded)
+                if (entry.contains(query))
+                    count++;
+        }
+        
+        return count;
+    }
+}
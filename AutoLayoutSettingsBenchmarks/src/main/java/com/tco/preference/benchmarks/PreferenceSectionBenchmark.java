@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tco.preference.PreferenceSection;
+
+/**
+ * Measures building a settings layout of {@link PreferenceSection} objects, as done by 
+ * <code>onRequestSimplePreferencesConfiguration()</code>, and walking their bound values, as done when binding summaries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreferenceSectionBenchmark
+{
+    @Param({ "10", "100" })
+    public int sections;
+    
+    @Param({ "20" })
+    public int boundKeys;
+    
+    private String[][] _keys;
+    private List<PreferenceSection> _layout;
+    
+    @Setup
+    public void setup()
+    {
+        _keys = new String[sections][boundKeys];
+        
+        for (int i = 0; i < sections; i++)
+            for (int j = 0; j < boundKeys; j++)
+                _keys[i][j] = "section" + i + "_key" + j;
+        
+        _layout = buildSections();
+    }
+    
+    @Benchmark
+    public List<PreferenceSection> buildSections()
+    {
+        List<PreferenceSection> layout = new ArrayList<PreferenceSection>(sections);
+        
+        for (int i = 0; i < sections; i++)
+        {
+            PreferenceSection.Builder builder = PreferenceSection.getBuilder().setTitle(i == 0 ? PreferenceSection.NO_TITLE : 0x7f050000 + i)
+                                                                              .setPreference(0x7f040000 + i);
+            for (String key : _keys[i])
+                builder.addBoundValue(key);
+            
+            layout.add(builder.create());
+        }
+        
+        return layout;
+    }
+    
+    @Benchmark
+    public void walkBoundValues(Blackhole blackhole)
+    {
+        for (PreferenceSection section : _layout)
+        {
+            blackhole.consume(section.getTitle());
+            blackhole.consume(section.getPref());
+            
+            for (int i = 0; i < section.getBoundValueCount(); i++)
+                blackhole.consume(section.getBoundValue(i));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.preference.benchmarks;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tco.preference.PreferenceSearchIndex;
+
+/**
+ * Measures building and querying a {@link PreferenceSearchIndex} the size of a large settings screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark
+{
+    private static final String[] WORDS = { "sync", "notification", "ringtone", "vibrate", "display", "name", "friends", 
+        "messages", "frequency", "account", "privacy", "storage", "network", "wifi", "data", "battery", "sound", 
+        "theme", "language", "backup" };
+    
+    @Param({ "100", "1000" })
+    public int preferences;
+    
+    private PreferenceSearchIndex _index;
+    private String[] _queries;
+    private int _next;
+    
+    @Setup
+    public void setup()
+    {
+        _index = build();
+        
+        /* Whole words, short prefixes and two word queries */
+        Random random = new Random(42);
+        _queries = new String[256];
+        for (int i = 0; i < _queries.length; i++)
+        {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            
+            switch (i % 3)
+            {
+                case 0:
+                    _queries[i] = word;
+                    break;
+                case 1:
+                    _queries[i] = word.substring(0, 2);
+                    break;
+                default:
+                    _queries[i] = word + " " + WORDS[random.nextInt(WORDS.length)].substring(0, 3);
+                    break;
+            }
+        }
+        
+        /* Every tenth preference has a summary bound to its value */
+        for (int i = 0; i < preferences; i += 10)
+            _index.updateText("pref_" + i, "Summary " + WORDS[i % WORDS.length] + " " + i);
+    }
+    
+    private PreferenceSearchIndex build()
+    {
+        Random random = new Random(7);
+        PreferenceSearchIndex.Builder builder = new PreferenceSearchIndex.Builder(Locale.US);
+        
+        for (int i = 0; i < preferences; i++)
+        {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            int entry = builder.addEntry("pref_" + i, title, i / 20, i / 20);
+            builder.addText(entry, "Choose the " + WORDS[random.nextInt(WORDS.length)] + " used for " + title);
+        }
+        
+        return builder.build();
+    }
+    
+    @Benchmark
+    public PreferenceSearchIndex buildIndex()
+    {
+        return build();
+    }
+    
+    @Benchmark
+    public List<PreferenceSearchIndex.Result> search()
+    {
+        return _index.search(_queries[_next++ & (_queries.length - 1)], 50);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+
+package com.tco.preference.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tco.preference.ListSummaryIndex;
+import com.tco.preference.SummaryValues;
+
+/**
+ * Measures the summary formatting rules: list value lookups, against the linear scan done by 
+ * <code>ListPreference.findIndexOfValue</code>, and the conversion of stored values to summaries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummaryFormattingBenchmark
+{
+    @Param({ "10", "5000" })
+    public int entries;
+    
+    private CharSequence[] _entries;
+    private CharSequence[] _entryValues;
+    private ListSummaryIndex _index;
+    private String[] _lookups;
+    private int _next;
+    private Map<String, Object> _stored;
+    private String[] _storedKeys;
+    
+    @Setup
+    public void setup()
+    {
+        _entries = new CharSequence[entries];
+        _entryValues = new CharSequence[entries];
+        
+        for (int i = 0; i < entries; i++)
+        {
+            _entries[i] = "Entry " + i;
+            _entryValues[i] = "value_" + i;
+        }
+        
+        _index = new ListSummaryIndex(_entries, _entryValues);
+        
+        Random random = new Random(42);
+        _lookups = new String[1024];
+        for (int i = 0; i < _lookups.length; i++)
+            _lookups[i] = "value_" + random.nextInt(entries);
+        
+        /* A typical mix of stored types, including one missing key */
+        _stored = new HashMap<String, Object>();
+        _stored.put("example_text", "John Smith");
+        _stored.put("example_list", "-1");
+        _stored.put("example_checkbox", Boolean.TRUE);
+        _stored.put("sync_frequency", Integer.valueOf(180));
+        _stored.put("example_multi", new LinkedHashSet<String>(Arrays.asList("one", "two", "three")));
+        _storedKeys = new String[] { "example_text", "example_list", "example_checkbox", "sync_frequency", "example_multi", "missing" };
+    }
+    
+    private String nextLookup()
+    {
+        return _lookups[_next++ & (_lookups.length - 1)];
+    }
+    
+    @Benchmark
+    public ListSummaryIndex buildIndex()
+    {
+        return new ListSummaryIndex(_entries, _entryValues);
+    }
+    
+    @Benchmark
+    public CharSequence indexedLookup()
+    {
+        return _index.getEntry(nextLookup());
+    }
+    
+    @Benchmark
+    public CharSequence linearLookup()
+    {
+        String value = nextLookup();
+        
+        for (int i = _entryValues.length - 1; i >= 0; i--)
+            if (_entryValues[i].equals(value))
+                return _entries[i];
+        
+        return null;
+    }
+    
+    @Benchmark
+    public CharSequence formatStoredValue()
+    {
+        String key = _storedKeys[_next++ % _storedKeys.length];
+        
+        return SummaryValues.toSummaryText(SummaryValues.toPreferenceValue(_stored.get(key)));
+    }
+}
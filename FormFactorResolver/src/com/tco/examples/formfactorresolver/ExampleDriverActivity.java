@@ -26,14 +26,16 @@
 
 package com.tco.examples.formfactorresolver;
 
+import com.tco.examples.formfactorresolver.util.AutoHideScheduler;
 import com.tco.examples.formfactorresolver.util.SystemUiHider;
+import com.tco.utils.FormFactor;
 import com.tco.utils.FormFactorResolver;
 
 import android.annotation.TargetApi;
 import android.app.Activity;
+import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.TextView;
@@ -86,14 +88,7 @@ public class ExampleDriverActivity extends Activity
         
         FormFactorResolver.dump(this);
         
-        if (FormFactorResolver.isHandsetFormFactor(this))
-            ((TextView)contentView).setText("Screen form factor : PHONE");
-        else if (FormFactorResolver.isMediumTabletFormFactor(this))
-            ((TextView)contentView).setText("Screen form factor : MEDIUM TABLET");
-        else if (FormFactorResolver.isLargeTabletFormFactor(this))
-            ((TextView)contentView).setText("Screen form factor : LARGE TABLET");
-        else
-            ((TextView)contentView).setText("Screen form factor : UNKNOWN");
+        showFormFactor(FormFactorResolver.resolve(this, getResources().getConfiguration()));
         
 
         // Set up an instance of SystemUiHider to control the system UI for
@@ -165,6 +160,34 @@ public class ExampleDriverActivity extends Activity
         findViewById(R.id.dummy_button).setOnTouchListener(mDelayHideTouchListener);
     }
 
+    @Override
+    public void onConfigurationChanged(Configuration newConfig)
+    {
+        super.onConfigurationChanged(newConfig);
+
+        // This activity handles its own size changes, and in multi-window
+        // mode its configuration can differ from the application's, so it
+        // shows its own form factor rather than the application's.
+        showFormFactor(FormFactorResolver.resolve(this, newConfig));
+    }
+
+    /**
+     * Shows the size class of a form factor.
+     */
+    private void showFormFactor(FormFactor formFactor)
+    {
+        TextView contentView = (TextView) findViewById(R.id.fullscreen_content);
+
+        if (formFactor.isHandset())
+            contentView.setText("Screen form factor : PHONE");
+        else if (formFactor.isMediumTablet())
+            contentView.setText("Screen form factor : MEDIUM TABLET");
+        else if (formFactor.isLargeTablet())
+            contentView.setText("Screen form factor : LARGE TABLET");
+        else
+            contentView.setText("Screen form factor : UNKNOWN");
+    }
+
     @Override
     protected void onPostCreate(Bundle savedInstanceState)
     {
@@ -193,22 +216,39 @@ public class ExampleDriverActivity extends Activity
             }
         };
 
-    Handler mHideHandler = new Handler();
-    Runnable mHideRunnable = new Runnable()
+    /**
+     * Hides the system UI once user interaction has stopped. Extending its deadline on each touch event does not touch
+     * the message queue.
+     */
+    AutoHideScheduler mAutoHideScheduler = new AutoHideScheduler(new Runnable()
         {
             @Override
             public void run()
             {
                 mSystemUiHider.hide();
             }
-        };
+        });
+
+    @Override
+    protected void onStart()
+    {
+        super.onStart();
+        mAutoHideScheduler.resume();
+    }
+
+    @Override
+    protected void onStop()
+    {
+        // No wakeups while the activity is not visible.
+        mAutoHideScheduler.pause();
+        super.onStop();
+    }
 
     /**
-     * Schedules a call to hide() in [delay] milliseconds, canceling any previously scheduled calls.
+     * Schedules a call to hide() in [delay] milliseconds, replacing any previously scheduled call.
      */
     private void delayedHide(int delayMillis)
     {
-        mHideHandler.removeCallbacks(mHideRunnable);
-        mHideHandler.postDelayed(mHideRunnable, delayMillis);
+        mAutoHideScheduler.schedule(delayMillis);
     }
 }
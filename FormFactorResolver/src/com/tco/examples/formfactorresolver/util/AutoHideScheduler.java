@@ -0,0 +1,158 @@
+package com.tco.examples.formfactorresolver.util;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Runs an action, such as {@link SystemUiHider#hide()}, once a deadline has passed without being extended.
+ * <p>
+ * Extending the deadline, as is done on every touch event while the user interacts with the UI, only moves a
+ * timestamp. A single callback is kept in the message queue; when it fires before the deadline it re-arms itself for
+ * the remaining time, so a drag costs a few queue operations per deadline rather than several per frame. The
+ * scheduler can be paused with its activity, so no callbacks are delivered while the activity is stopped.
+ * <p>
+ * This class must be used from the thread that created it, normally the UI thread.
+ */
+public class AutoHideScheduler
+{
+    /**
+     * The handler on which the action is run.
+     */
+    private final Handler mHandler = new Handler();
+
+    /**
+     * The action run when the deadline passes.
+     */
+    private final Runnable mAction;
+
+    /**
+     * The time, in {@link SystemClock#uptimeMillis()}, after which the action runs, or 0 if none is scheduled.
+     */
+    private long mDeadline;
+
+    /**
+     * The time at which the posted callback fires, or 0 if no callback is posted.
+     */
+    private long mCallbackTime;
+
+    /**
+     * Whether or not the scheduler has been paused.
+     */
+    private boolean mPaused;
+
+    private final Runnable mCallback = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                mCallbackTime = 0;
+                if (0 == mDeadline)
+                {
+                    return;
+                }
+
+                long now = SystemClock.uptimeMillis();
+                if (now < mDeadline)
+                {
+                    // The deadline was extended since this callback was
+                    // posted, so wait for the rest of it.
+                    post(mDeadline);
+                    return;
+                }
+
+                mDeadline = 0;
+                mAction.run();
+            }
+        };
+
+    /**
+     * @param action
+     *            The action to run once a deadline passes.
+     */
+    public AutoHideScheduler(Runnable action)
+    {
+        mAction = action;
+    }
+
+    /**
+     * Runs the action in <code>delayMillis</code> milliseconds, replacing any earlier deadline. Moving the deadline
+     * later does not touch the message queue.
+     */
+    public void schedule(long delayMillis)
+    {
+        mDeadline = SystemClock.uptimeMillis() + delayMillis;
+
+        if (mPaused)
+        {
+            return;
+        }
+
+        // A callback that fires too early re-arms itself, so one is only
+        // replaced if it would fire too late.
+        if (0 != mCallbackTime && mCallbackTime > mDeadline)
+        {
+            mHandler.removeCallbacks(mCallback);
+            mCallbackTime = 0;
+        }
+
+        if (0 == mCallbackTime)
+        {
+            post(mDeadline);
+        }
+    }
+
+    /**
+     * Cancels the scheduled action, if any.
+     */
+    public void cancel()
+    {
+        mDeadline = 0;
+        removeCallback();
+    }
+
+    /**
+     * Returns whether or not the action is scheduled.
+     */
+    public boolean isScheduled()
+    {
+        return 0 != mDeadline;
+    }
+
+    /**
+     * Stops delivering callbacks, for example from {@link android.app.Activity#onStop()}. The deadline is kept.
+     */
+    public void pause()
+    {
+        mPaused = true;
+        removeCallback();
+    }
+
+    /**
+     * Resumes delivering callbacks, for example from {@link android.app.Activity#onStart()}. An action whose deadline
+     * passed while paused runs straight away.
+     */
+    public void resume()
+    {
+        mPaused = false;
+
+        if (0 != mDeadline && 0 == mCallbackTime)
+        {
+            post(mDeadline);
+        }
+    }
+
+    private void post(long time)
+    {
+        mCallbackTime = time;
+        mHandler.postAtTime(mCallback, time);
+    }
+
+    private void removeCallback()
+    {
+        if (0 != mCallbackTime)
+        {
+            mHandler.removeCallbacks(mCallback);
+            mCallbackTime = 0;
+        }
+    }
+}
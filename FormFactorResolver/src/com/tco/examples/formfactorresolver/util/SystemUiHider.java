@@ -1,5 +1,6 @@
 package com.tco.examples.formfactorresolver.util;
 
+import android.annotation.TargetApi;
 import android.app.Activity;
 import android.os.Build;
 import android.view.View;
@@ -13,6 +14,10 @@ import android.view.View;
  * {@link SystemUiHiderHoneycomb} instance, while on older devices {@link #getInstance} will return a
  * {@link SystemUiHiderBase} instance.
  * <p>
+ * Calls to {@link #show()}, {@link #hide()} and {@link #toggle()} only record the requested state. The request is
+ * applied at most once per frame, and only if it differs from the state last applied, so back-to-back or redundant
+ * calls cost no window manager calls or layout passes.
+ * <p>
  * For more on system bars, see <a href= "http://developer.android.com/design/get-started/ui-overview.html#system-bars"
  * > System Bars</a>.
  * 
@@ -69,6 +74,44 @@ public abstract class SystemUiHider
      */
     protected OnVisibilityChangeListener mOnVisibilityChangeListener = sDummyListener;
 
+    /**
+     * Whether or not the system UI is visible, as last applied or reported by the system.
+     */
+    private boolean mVisible = true;
+
+    /**
+     * Whether or not the system UI was visible in the state last applied to the window.
+     */
+    private boolean mAppliedVisible = true;
+
+    /**
+     * Whether or not the system UI should be visible once pending transitions have been applied.
+     */
+    private boolean mRequestedVisible = true;
+
+    /**
+     * Whether or not {@link #mApplyTransition} has been posted for the next frame.
+     */
+    private boolean mTransitionPending;
+
+    /**
+     * Applies the requested state if it differs from the state last applied.
+     */
+    private final Runnable mApplyTransition = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                mTransitionPending = false;
+
+                if (mRequestedVisible != mAppliedVisible)
+                {
+                    mAppliedVisible = mRequestedVisible;
+                    applyVisibility(mAppliedVisible);
+                }
+            }
+        };
+
     /**
      * Creates and returns an instance of {@link SystemUiHider} that is appropriate for this device. The object will be
      * either a {@link SystemUiHiderBase} or {@link SystemUiHiderHoneycomb} depending on the device.
@@ -108,33 +151,90 @@ public abstract class SystemUiHider
     /**
      * Returns whether or not the system UI is visible.
      */
-    public abstract boolean isVisible();
+    public boolean isVisible()
+    {
+        return mVisible;
+    }
 
     /**
      * Hide the system UI.
      */
-    public abstract void hide();
+    public void hide()
+    {
+        requestVisibility(false);
+    }
 
     /**
      * Show the system UI.
      */
-    public abstract void show();
+    public void show()
+    {
+        requestVisibility(true);
+    }
 
     /**
-     * Toggle the visibility of the system UI.
+     * Toggle the visibility of the system UI. Toggling twice before the next frame leaves the system UI unchanged.
      */
     public void toggle()
     {
-        if (isVisible())
+        requestVisibility(!mRequestedVisible);
+    }
+
+    /**
+     * Applies a change of state to the window. Called at most once per frame, and only when <code>visible</code>
+     * differs from the state last applied.
+     */
+    protected abstract void applyVisibility(boolean visible);
+
+    /**
+     * Records the visibility of the system UI and notifies the listener if it has changed. Implementations call this
+     * once a transition has taken effect, or when the system changes the visibility on its own, as it does when the
+     * user touches the screen while the navigation bar is hidden.
+     */
+    protected void updateVisibility(boolean visible)
+    {
+        // A change made by the system is the state in effect now, and is
+        // what later requests are compared against. A pending transition
+        // still applies the request made before it.
+        mAppliedVisible = visible;
+        if (!mTransitionPending)
+        {
+            mRequestedVisible = visible;
+        }
+
+        if (mVisible != visible)
         {
-            hide();
+            mVisible = visible;
+            mOnVisibilityChangeListener.onVisibilityChange(visible);
+        }
+    }
+
+    private void requestVisibility(boolean visible)
+    {
+        mRequestedVisible = visible;
+
+        if (mTransitionPending || visible == mAppliedVisible)
+        {
+            return;
+        }
+
+        mTransitionPending = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+        {
+            postOnAnimation(mApplyTransition);
         }
         else
         {
-            show();
+            mAnchorView.post(mApplyTransition);
         }
     }
 
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postOnAnimation(Runnable action)
+    {
+        mAnchorView.postOnAnimation(action);
+    }
+
     /**
      * Registers a callback, to be triggered when the system UI visibility changes.
      */
@@ -10,12 +10,6 @@ import android.view.WindowManager;
  */
 public class SystemUiHiderBase extends SystemUiHider
 {
-    /**
-     * Whether or not the system UI is currently visible. This is a cached value from calls to {@link #hide()} and
-     * {@link #show()}.
-     */
-    private boolean mVisible = true;
-
     /**
      * Constructor not intended to be called by clients. Use {@link SystemUiHider#getInstance} to obtain an instance.
      */
@@ -35,30 +29,12 @@ public class SystemUiHiderBase extends SystemUiHider
     }
 
     @Override
-    public boolean isVisible()
-    {
-        return mVisible;
-    }
-
-    @Override
-    public void hide()
-    {
-        if ((mFlags & FLAG_FULLSCREEN) != 0)
-        {
-            mActivity.getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN, WindowManager.LayoutParams.FLAG_FULLSCREEN);
-        }
-        mOnVisibilityChangeListener.onVisibilityChange(false);
-        mVisible = false;
-    }
-
-    @Override
-    public void show()
+    protected void applyVisibility(boolean visible)
     {
         if ((mFlags & FLAG_FULLSCREEN) != 0)
         {
-            mActivity.getWindow().setFlags(0, WindowManager.LayoutParams.FLAG_FULLSCREEN);
+            mActivity.getWindow().setFlags(visible ? 0 : WindowManager.LayoutParams.FLAG_FULLSCREEN, WindowManager.LayoutParams.FLAG_FULLSCREEN);
         }
-        mOnVisibilityChangeListener.onVisibilityChange(true);
-        mVisible = true;
+        updateVisibility(visible);
     }
 }
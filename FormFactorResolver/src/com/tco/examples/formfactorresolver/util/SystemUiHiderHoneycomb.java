@@ -31,10 +31,9 @@ public class SystemUiHiderHoneycomb extends SystemUiHiderBase
     private int mTestFlags;
 
     /**
-     * Whether or not the system UI is currently visible. This is cached from
-     * {@link android.view.View.OnSystemUiVisibilityChangeListener}.
+     * Whether or not the action bar and the window have been made fullscreen, before Jelly Bean.
      */
-    private boolean mVisible = true;
+    private boolean mLegacyFullscreen;
 
     /**
      * Constructor not intended to be called by clients. Use {@link SystemUiHider#getInstance} to obtain an instance.
@@ -75,23 +74,52 @@ public class SystemUiHiderHoneycomb extends SystemUiHiderBase
 
     /** {@inheritDoc} */
     @Override
-    public void hide()
+    protected void applyVisibility(boolean visible)
     {
-        mAnchorView.setSystemUiVisibility(mHideFlags);
+        // The visibility is recorded when the system reports the change, or
+        // now if the flags are already in effect and there is nothing to report.
+        if (!setSystemUiVisibility(visible ? mShowFlags : mHideFlags))
+        {
+            updateVisibility(visible);
+        }
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public void show()
+    /**
+     * Sets the anchor view's system UI flags unless they are already in effect.
+     * 
+     * @return True if the flags were changed.
+     */
+    private boolean setSystemUiVisibility(int flags)
     {
-        mAnchorView.setSystemUiVisibility(mShowFlags);
+        if (mAnchorView.getSystemUiVisibility() == flags)
+        {
+            return false;
+        }
+
+        mAnchorView.setSystemUiVisibility(flags);
+        return true;
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public boolean isVisible()
+    /**
+     * Hides or shows the action bar and the status bar with the old window flags API, unless already done.
+     */
+    private void setLegacyFullscreen(boolean fullscreen)
     {
-        return mVisible;
+        if (mLegacyFullscreen == fullscreen)
+        {
+            return;
+        }
+        mLegacyFullscreen = fullscreen;
+
+        if (fullscreen)
+        {
+            mActivity.getActionBar().hide();
+        }
+        else
+        {
+            mActivity.getActionBar().show();
+        }
+        mActivity.getWindow().setFlags(fullscreen ? WindowManager.LayoutParams.FLAG_FULLSCREEN : 0, WindowManager.LayoutParams.FLAG_FULLSCREEN);
     }
 
     private View.OnSystemUiVisibilityChangeListener mSystemUiVisibilityChangeListener = new View.OnSystemUiVisibilityChangeListener()
@@ -100,38 +128,25 @@ public class SystemUiHiderHoneycomb extends SystemUiHiderBase
             public void onSystemUiVisibilityChange(int vis)
             {
                 // Test against mTestFlags to see if the system UI is visible.
-                if ((vis & mTestFlags) != 0)
-                {
-                    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN)
-                    {
-                        // Pre-Jelly Bean, we must manually hide the action bar
-                        // and use the old window flags API.
-                        mActivity.getActionBar().hide();
-                        mActivity.getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN, WindowManager.LayoutParams.FLAG_FULLSCREEN);
-                    }
-
-                    // Trigger the registered listener and cache the visibility
-                    // state.
-                    mOnVisibilityChangeListener.onVisibilityChange(false);
-                    mVisible = false;
+                boolean visible = (vis & mTestFlags) == 0;
 
+                if (visible)
+                {
+                    // The system may have shown its UI by itself, so make the
+                    // requested flags match.
+                    setSystemUiVisibility(mShowFlags);
                 }
-                else
+
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN)
                 {
-                    mAnchorView.setSystemUiVisibility(mShowFlags);
-                    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN)
-                    {
-                        // Pre-Jelly Bean, we must manually show the action bar
-                        // and use the old window flags API.
-                        mActivity.getActionBar().show();
-                        mActivity.getWindow().setFlags(0, WindowManager.LayoutParams.FLAG_FULLSCREEN);
-                    }
-
-                    // Trigger the registered listener and cache the visibility
-                    // state.
-                    mOnVisibilityChangeListener.onVisibilityChange(true);
-                    mVisible = true;
+                    // Pre-Jelly Bean, we must manually hide or show the action
+                    // bar and use the old window flags API.
+                    setLegacyFullscreen(!visible);
                 }
+
+                // Cache the visibility state and trigger the registered
+                // listener if it changed.
+                updateVisibility(visible);
             }
         };
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2013 Two Chips Off, LLC
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met: 
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution. 
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package com.tco.utils;
+
+import android.content.res.Configuration;
+import android.util.DisplayMetrics;
+
+/**
+ * An immutable snapshot of the form factor of the screen
+ * 
+ * {@more}
+ * A {@link FormFactor} holds the values of a {@link Configuration} that describe the screen: its size class, density 
+ * bucket, smallest width and orientation. Instances are published by {@link FormFactorResolver} and can be shared 
+ * freely between threads.
+ */
+public final class FormFactor
+{
+    /**
+     * The screen size classes, from the <code>Configuration.SCREENLAYOUT_SIZE_</code> constants
+     */
+    public enum SizeClass
+    {
+        UNDEFINED,
+        SMALL,
+        NORMAL,
+        LARGE,
+        XLARGE;
+        
+        /**
+         * Get the size class of a screen layout
+         * @param screenLayout The screen layout, as in {@link Configuration#screenLayout}
+         */
+        public static SizeClass fromScreenLayout(int screenLayout)
+        {
+            switch (screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK)
+            {
+                case Configuration.SCREENLAYOUT_SIZE_SMALL :
+                    return SMALL;
+                case Configuration.SCREENLAYOUT_SIZE_NORMAL :
+                    return NORMAL;
+                case Configuration.SCREENLAYOUT_SIZE_LARGE :
+                    return LARGE;
+                case Configuration.SCREENLAYOUT_SIZE_XLARGE :
+                    return XLARGE;
+                default :
+                    return UNDEFINED;
+            }
+        }
+    }
+    
+    /* The density buckets, in dpi, in ascending order */
+    private static final int[] DENSITY_BUCKETS = { DisplayMetrics.DENSITY_LOW, DisplayMetrics.DENSITY_MEDIUM, DisplayMetrics.DENSITY_TV, 
+                                                   DisplayMetrics.DENSITY_HIGH, DisplayMetrics.DENSITY_XHIGH, DisplayMetrics.DENSITY_XXHIGH };
+    
+    private final SizeClass _sizeClass;
+    private final int _densityDpi;
+    private final int _smallestScreenWidthDp;
+    private final int _orientation;
+    
+    /**
+     * Construct a {@link FormFactor}
+     * @param sizeClass The screen size class
+     * @param densityDpi The screen density, in dots per inch
+     * @param smallestScreenWidthDp The smallest width of the screen, in dp, or {@link Configuration#SMALLEST_SCREEN_WIDTH_DP_UNDEFINED}
+     * @param orientation One of the <code>Configuration.ORIENTATION_</code> constants
+     */
+    public FormFactor(SizeClass sizeClass, int densityDpi, int smallestScreenWidthDp, int orientation)
+    {
+        _sizeClass = sizeClass;
+        _densityDpi = densityDpi;
+        _smallestScreenWidthDp = smallestScreenWidthDp;
+        _orientation = orientation;
+    }
+    
+    /**
+     * Construct a {@link FormFactor} from a configuration
+     * @param config The configuration
+     * @param densityDpi The screen density, in dots per inch, which a configuration only holds from API 17
+     */
+    public FormFactor(Configuration config, int densityDpi)
+    {
+        this(SizeClass.fromScreenLayout(config.screenLayout), densityDpi, config.smallestScreenWidthDp, config.orientation);
+    }
+    
+    /**
+     * Get the screen size class
+     */
+    public SizeClass getSizeClass()
+    {
+        return _sizeClass;
+    }
+    
+    /**
+     * Determine whether the screen is likely to be that of a phone 
+     */
+    public boolean isHandset()
+    {
+        return _sizeClass.compareTo(SizeClass.LARGE) < 0;
+    }
+    
+    /**
+     * Determine whether the screen is likely to be that of a 7" tablet or larger
+     */
+    public boolean isTablet()
+    {
+        return !isHandset();
+    }
+    
+    /**
+     * Determine whether the screen is likely to be similar to that of a 7" tablet
+     */
+    public boolean isMediumTablet()
+    {
+        return SizeClass.LARGE == _sizeClass;
+    }
+    
+    /**
+     * Determine whether the screen is likely to be similar to that of a 10" tablet
+     */
+    public boolean isLargeTablet()
+    {
+        return SizeClass.XLARGE == _sizeClass;
+    }
+    
+    /**
+     * Get the screen density
+     * @return The density in dots per inch
+     */
+    public int getDensityDpi()
+    {
+        return _densityDpi;
+    }
+    
+    /**
+     * Get the density bucket that resources are chosen from
+     * @return The smallest of the <code>DisplayMetrics.DENSITY_</code> buckets that is at least the screen density, 
+     * or the largest bucket for denser screens
+     */
+    public int getDensityBucket()
+    {
+        for (int bucket : DENSITY_BUCKETS)
+            if (_densityDpi <= bucket)
+                return bucket;
+        
+        return DENSITY_BUCKETS[DENSITY_BUCKETS.length - 1];
+    }
+    
+    /**
+     * Get the smallest width of the screen
+     * @return The width in dp, or {@link Configuration#SMALLEST_SCREEN_WIDTH_DP_UNDEFINED}
+     */
+    public int getSmallestScreenWidthDp()
+    {
+        return _smallestScreenWidthDp;
+    }
+    
+    /**
+     * Get the orientation of the screen
+     * @return One of the <code>Configuration.ORIENTATION_</code> constants
+     */
+    public int getOrientation()
+    {
+        return _orientation;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof FormFactor))
+            return false;
+        
+        FormFactor other = (FormFactor) o;
+        return _sizeClass == other._sizeClass && _densityDpi == other._densityDpi 
+            && _smallestScreenWidthDp == other._smallestScreenWidthDp && _orientation == other._orientation;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode()
+    {
+        return ((_sizeClass.ordinal() * 31 + _densityDpi) * 31 + _smallestScreenWidthDp) * 31 + _orientation;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "FormFactor{" + _sizeClass + ", densityDpi=" + _densityDpi + ", smallestScreenWidthDp=" + _smallestScreenWidthDp + ", orientation=" + _orientation + "}";
+    }
+}